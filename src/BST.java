@@ -4,28 +4,167 @@
  * @author Yi Jou (Ruby) Liao
  * @author Alvin Nguyen
  * CIS 22C, Course Project
- * ** DESCRIPTION HERE **
+ * Binary search tree kept height balanced (AVL) on every insert and remove.
+ * Values that compare equal in the tree's order share one node, which keeps
+ * them in a small array sorted by their natural order (compareTo)
  */
 
+import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.function.Predicate;
 
 
-public class BST<T extends Comparable<T>> {
+public class BST<T extends Comparable<T>> implements Iterable<T>, Writable {
 	private class Node {
-		private T data;
+		private T data; // First value of the group, also the key the node is ordered by
+		private Object[] more; // The rest of the group, null while the group has one value
+		private int count; // Values in the group
 		private Node left;
 		private Node right;
+		private int height; // Edges on the longest path down to a leaf
+		private int size; // Values in the subtree rooted here, counting every group member
 
 		public Node(T data) {
 			this.data = data;
+			more = null;
+			count = 1;
 			left = null;
 			right = null;
+			height = 0;
+			size = 1;
+		}
+
+		/**
+		 * Creates a node whose group is a run of values already in group order
+		 * 
+		 * @param sorted the values
+		 * @param from the first value of the group
+		 * @param to one past the last value of the group
+		 */
+		public Node(T[] sorted, int from, int to) {
+			this(sorted[from]);
+			count = to - from;
+			size = count;
+			if (count > 1) {
+				more = Arrays.copyOfRange(sorted, from + 1, to, Object[].class);
+			}
+		}
+
+		/**
+		 * Returns a value of the group
+		 * 
+		 * @param i the position in the group, 0 to count - 1
+		 * @return the value at position i
+		 */
+		@SuppressWarnings("unchecked")
+		private T get(int i) {
+			return (i == 0) ? data : (T) more[i - 1];
+		}
+
+		private void set(int i, T value) {
+			if (i == 0) {
+				data = value;
+			} else {
+				more[i - 1] = value;
+			}
+		}
+
+		/**
+		 * Adds a value to the group after any values equal to it by compareTo
+		 * 
+		 * @param value the value to add
+		 */
+		private void add(T value) {
+			int low = 0;
+			int high = count;
+			while (low < high) { // Find the first value greater than value
+				int mid = (low + high) >>> 1;
+				if (value.compareTo(get(mid)) < 0) {
+					high = mid;
+				} else {
+					low = mid + 1;
+				}
+			}
+			if (more == null) {
+				more = new Object[2];
+			} else if (count == more.length + 1) {
+				Object[] bigger = new Object[more.length * 2];
+				System.arraycopy(more, 0, bigger, 0, more.length);
+				more = bigger;
+			}
+			for (int j = count; j > low; j--) {
+				set(j, get(j - 1));
+			}
+			set(low, value);
+			count++;
+		}
+
+		/**
+		 * Returns the position of the first group value equal to value by compareTo
+		 * 
+		 * @param value the value to look for
+		 * @return the position or -1 if there is none
+		 */
+		private int indexOf(T value) {
+			int low = 0;
+			int high = count;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (get(mid).compareTo(value) < 0) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			return (low < count && get(low).compareTo(value) == 0) ? low : -1;
+		}
+
+		/**
+		 * Returns the position of value itself in the group, telling apart
+		 * values that are equal by compareTo
+		 * 
+		 * @param value the value to look for
+		 * @return the position or -1 if value is not in the group
+		 */
+		private int indexOfInstance(T value) {
+			int i = indexOf(value);
+			if (i == -1) {
+				return -1;
+			}
+			for (; i < count && get(i).compareTo(value) == 0; i++) {
+				if (get(i) == value) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		/**
+		 * Removes the value at a position of the group
+		 * 
+		 * @param i the position, 0 to count - 1
+		 */
+		private void removeAt(int i) {
+			for (int j = i; j < count - 1; j++) {
+				set(j, get(j + 1));
+			}
+			count--;
+			if (count == 1) {
+				more = null;
+			} else if (count > 1) {
+				more[count - 1] = null;
+			}
 		}
 	}
 	private Node root;
 	private Comparator<T> comp; // How data will be compared in the tree
+	private int modCount; // Inserts and removes so far, lets range iterators detect changes
 
 	/*** CONSTRUCTORS ***/
 
@@ -73,7 +212,9 @@ public class BST<T extends Comparable<T>> {
 			return;
 		}
 		// Recursively iterate through BST, copying each node
-		insert(node.data);
+		for (int i = 0; i < node.count; i++) {
+			insert(node.get(i));
+		}
 		copyHelper(node.left);
 		copyHelper(node.right);
 	}
@@ -104,25 +245,26 @@ public class BST<T extends Comparable<T>> {
 	}
 
 	/**
-	 * Returns the current size of the tree (number of nodes)
+	 * Returns the current size of the tree (number of values). Each node keeps the
+	 * size of its subtree, so this is O(1)
 	 * 
 	 * @return the size of the tree
 	 */
 	public int getSize() {
-		return getSize(root);
+		return size(root);
 	}
 
 	/**
-	 * Helper method for the getSize method
+	 * Returns the size stored in a node, treating an empty subtree as 0
 	 * 
-	 * @param node the current node to count
-	 * @return the size of the tree
+	 * @param node the node whose subtree size to return
+	 * @return the number of values in the subtree rooted at node
 	 */
-	private int getSize(Node node) {
+	private int size(Node node) {
 		if(node == null) {
 			return 0;
 		}
-		return getSize(node.left) + getSize(node.right) + 1;
+		return node.size;
 	}
 
 	/**
@@ -131,28 +273,20 @@ public class BST<T extends Comparable<T>> {
 	 * @return the height of the tree
 	 */
 	public int getHeight() {
-		return getHeight(root);
+		return height(root);
 	}
 
 	/**
-	 * Helper method for getHeight method
+	 * Returns the height stored in a node, treating an empty subtree as -1
 	 * 
-	 * @param node the current node whose height to count
-	 * @return the height of the tree
+	 * @param node the node whose height to return
+	 * @return the height of the subtree rooted at node
 	 */
-	private int getHeight(Node node) {
+	private int height(Node node) {
 		if(node == null) {
 			return -1;
 		}
-		
-		int leftHeight = getHeight(node.left);
-		int rightHeight = getHeight(node.right);
-		
-		if(leftHeight < rightHeight) {
-			return rightHeight + 1;
-		} else {
-			return leftHeight + 1;
-		}
+		return node.height;
 	}
 
 	/**
@@ -213,44 +347,146 @@ public class BST<T extends Comparable<T>> {
 	 */
 	private T findMax(Node node) {
 		if (node.right == null)
-			return node.data;
+			return node.get(node.count - 1);
 		return findMax(node.right);
 	}
 
 	/**
-	 * Searches for a specified value in the tree
+	 * Searches for a specified value in the tree. All matches share one node, so
+	 * this is O(log n + k) for k matches
 	 * 
 	 * @param data the value to search for
-	 * @return ArrayList of objects matching the value being searched for
+	 * @return ArrayList of objects matching the value being searched for, in
+	 *         natural order
 	 */
 	public ArrayList<T> search(T data) {
 		ArrayList<T> arr = new ArrayList<T>();
-		if (root == null) {
-			return arr;
-		} else {
-			return search(data, root, arr);
+		Node node = findNode(data);
+		if (node != null) {
+			for (int i = 0; i < node.count; i++) {
+				arr.add(node.get(i));
+			}
 		}
+		return arr;
+	}
+
+	/**
+	 * Determines whether a value itself is in the tree, as opposed to a value
+	 * equal to it
+	 * 
+	 * @param data the value to look for
+	 * @return whether data is in the tree
+	 */
+	public boolean containsInstance(T data) {
+		Node node = findNode(data);
+		return node != null && node.indexOfInstance(data) != -1;
 	}
 
 	/**
 	 * Helper method for the search method
 	 * 
 	 * @param data the value to search for
-	 * @param node the current node to check
-	 * @return ArrayList of objects matching the value being searched for
+	 * @return the node holding values equal to data or null if there is none
 	 */
-	private ArrayList<T> search(T data, Node node, ArrayList<T> arr) {
-		if (node == null) { // Base case
-			return arr;
+	private Node findNode(T data) {
+		Node node = root;
+		while (node != null) {
+			int cmp = compareData(data, node.data);
+			if (cmp == 0) {
+				return node;
+			}
+			node = (cmp < 0) ? node.left : node.right;
 		}
-		if (compareData(data, node.data) == 0) { // Match found, add to ArrayList and check left for duplicates
-			arr.add(node.data);
-			return search(data, node.left, arr);
-		} else if (compareData(data, node.data) < 0) {  // If target data < current node.data
-			return search(data, node.left, arr); 
-		} else {  // Target data > current node.data
-			return search(data, node.right, arr);
+		return null;
+	}
+
+	/**
+	 * Returns how many values in the tree are smaller than a value, which is the
+	 * position data would have in sorted order (counting from 0)
+	 * 
+	 * @param data the value to rank, need not be in the tree
+	 * @return the number of smaller values
+	 */
+	public int rank(T data) {
+		int smaller = 0;
+		Node node = root;
+		while (node != null) {
+			if (compareData(data, node.data) <= 0) {
+				node = node.left;
+			} else { // node and its whole left subtree are smaller
+				smaller += size(node.left) + node.count;
+				node = node.right;
+			}
 		}
+		return smaller;
+	}
+
+	/**
+	 * Returns the value at a position in sorted order, so that
+	 * select(rank(x)) == x for a value x in the tree without duplicates
+	 * 
+	 * @param index the position, counting from 0
+	 * @precondition 0 <= index < getSize()
+	 * @return the value at index
+	 * @throws IndexOutOfBoundsException when the precondition is violated
+	 */
+	public T select(int index) throws IndexOutOfBoundsException {
+		if (index < 0 || index >= getSize()) {
+			throw new IndexOutOfBoundsException("select(): Cannot select. Index out of bounds.");
+		}
+		Node node = root;
+		while (true) {
+			int leftSize = size(node.left);
+			if (index < leftSize) {
+				node = node.left;
+			} else if (index < leftSize + node.count) {
+				return node.get(index - leftSize);
+			} else {
+				index -= leftSize + node.count;
+				node = node.right;
+			}
+		}
+	}
+
+	/**
+	 * Returns a run of consecutive values in sorted order, such as one page of a
+	 * listing. Subtrees entirely outside the run are skipped using their sizes,
+	 * so this is O(log n + count)
+	 * 
+	 * @param from the position of the first value, counting from 0
+	 * @param count the most values to return
+	 * @return the values at positions from to from + count - 1 that exist
+	 */
+	public ArrayList<T> slice(int from, int count) {
+		ArrayList<T> arr = new ArrayList<T>();
+		if (from < 0) {
+			count += from;
+			from = 0;
+		}
+		if (count > 0) {
+			slice(root, from, from + count, arr);
+		}
+		return arr;
+	}
+
+	/**
+	 * Helper method for the slice method
+	 * 
+	 * @param node the root of the current subtree
+	 * @param from the first position wanted, relative to this subtree
+	 * @param to one past the last position wanted, relative to this subtree
+	 * @param arr the values collected so far
+	 */
+	private void slice(Node node, int from, int to, ArrayList<T> arr) {
+		if (node == null || to <= 0 || from >= node.size) {
+			return;
+		}
+		int leftSize = size(node.left);
+		slice(node.left, from, to, arr);
+		for (int i = Math.max(from - leftSize, 0); i < node.count && leftSize + i < to; i++) {
+			arr.add(node.get(i));
+		}
+		slice(node.right, from - leftSize - node.count, to - leftSize - node.count, arr);
 	}
 
 	/**
@@ -297,9 +533,14 @@ public class BST<T extends Comparable<T>> {
 			}
 		}
 
-		if (!node1.data.equals(node2.data)) { // If corresponding nodes !=
+		if (node1.count != node2.count) { // If corresponding nodes !=
 			return false;
 		}
+		for (int i = 0; i < node1.count; i++) {
+			if (!node1.get(i).equals(node2.get(i))) {
+				return false;
+			}
+		}
 
 		return equals(node1.left, node2.left) && equals(node1.right, node2.right);
 	}
@@ -307,16 +548,15 @@ public class BST<T extends Comparable<T>> {
 	/*** MUTATORS ***/
 
 	/**
-	 * Inserts a new node in the tree
+	 * Inserts a new value in the tree, rebalancing on the way back up so the
+	 * height stays O(log n) whatever order the data arrives in. A value equal to
+	 * an existing one joins that node's group instead of getting a node of its own
 	 * 
 	 * @param data the data to insert
 	 */
 	public void insert(T data) {
-		if(isEmpty()) {
-			root = new Node(data);
-		} else {
-			insert(data, root);
-		}
+		root = insert(data, root);
+		modCount++;
 	}
 
 	/**
@@ -325,25 +565,28 @@ public class BST<T extends Comparable<T>> {
 	 * @param data the data to insert
 	 * @param node the current node in the search for the correct location in which
 	 *             to insert
+	 * @return the (possibly rotated) root of the subtree
 	 */
-	private void insert(T data, Node node) {
-		if (compareData(data, node.data) <= 0) {  // Insert <= current node.data
-			if (node.left == null) {
-				node.left = new Node(data);
-			} else {
-				insert(data, node.left);
-			}
+	private Node insert(T data, Node node) {
+		if (node == null) {
+			return new Node(data);
+		}
+		int cmp = compareData(data, node.data);
+		if (cmp == 0) {  // Same key, join the group
+			node.add(data);
+		} else if (cmp < 0) {  // Insert < current node.data
+			node.left = insert(data, node.left);
 		} else { // Insert > current node
-			if (node.right == null) {
-				node.right = new Node(data);
-			} else {
-				insert(data, node.right);
-			}
+			node.right = insert(data, node.right);
 		}
+		return rebalance(node);
 	}
 
 	/**
-	 * Removes a value from the BST
+	 * Removes a value from the BST. In a tree with a comparator, the value
+	 * removed is the one in the matching group that data equals by compareTo,
+	 * e.g. one section (by CRN) out of all sections with a title. The node
+	 * itself is only unlinked once its group is empty
 	 * 
 	 * @param data the value to remove
 	 * @precondition !isEmpty()
@@ -354,12 +597,24 @@ public class BST<T extends Comparable<T>> {
 		if (isEmpty()) {
 			throw new NoSuchElementException("remove(): Cannot remove. Tree is empty.");
 		}
-		
-		if (this.search(data).isEmpty()) { // If target data not found
-			throw new NoSuchElementException("remove(): Cannot remove. Element not found.");
-		} else {
-			root = remove(data, root); // Reassign BST's root in case root was removed
+		root = remove(data, root, false); // Reassign BST's root in case root was removed
+		modCount++;
+	}
+
+	/**
+	 * Removes a value itself from the BST, rather than any value equal to it
+	 * by compareTo, e.g. one of several sections listed under the same CRN
+	 * 
+	 * @param data the value to remove
+	 * @precondition containsInstance(data)
+	 * @throws NoSuchElementException when the precondition is violated
+	 */
+	public void removeInstance(T data) throws NoSuchElementException {
+		if (isEmpty()) {
+			throw new NoSuchElementException("removeInstance(): Cannot remove. Tree is empty.");
 		}
+		root = remove(data, root, true);
+		modCount++;
 	}
 
 	/**
@@ -367,30 +622,346 @@ public class BST<T extends Comparable<T>> {
 	 * 
 	 * @param data the data to remove
 	 * @param node the current node
+	 * @param sameInstance whether only data itself matches, not just an equal value
 	 * @return an updated reference variable
+	 * @throws NoSuchElementException when the data is not in the tree
 	 */
-	private Node remove(T data, Node node) {
-		if (node == null) { 
-			return node;
+	private Node remove(T data, Node node, boolean sameInstance) throws NoSuchElementException {
+		if (node == null) { // Nothing has been relinked yet, so the tree is unchanged
+			throw new NoSuchElementException("remove(): Cannot remove. Element not found.");
 		} else if (compareData(data, node.data) < 0) {  // Target data < current node.data
-			node.left = remove(data, node.left);  // Go to left child
+			node.left = remove(data, node.left, sameInstance);  // Go to left child
 		} else if (compareData(data, node.data) > 0) {  // Target data > current node.data
-			node.right = remove(data, node.right); // Go to right child
+			node.right = remove(data, node.right, sameInstance); // Go to right child
 		} else { // Current node.data == target data for deletion
-			if (node.left == null && node.right == null) { // If leaf node
-				node = null;
-			} else if (node.left != null && node.right == null) {  // If only left child, replace this node with left child   
-				node = node.left;
-			} else if (node.left == null && node.right != null) {  // If only right child, replace this node with right child
-				node = node.right;
+			int i = sameInstance ? node.indexOfInstance(data) : node.indexOf(data);
+			if (i == -1) {
+				throw new NoSuchElementException("remove(): Cannot remove. Element not found.");
+			} else if (node.count > 1) {  // Other values stay in the group
+				node.removeAt(i);
+				return rebalance(node);
+			}
+			if (node.left == null) {  // Leaf or only right child, replace this node with right child
+				return node.right;
+			} else if (node.right == null) {  // Only left child, replace this node with left child
+				return node.left;
 			} else {  // Node has two children
-				node.data = findMin(node.right);  // findMin node in right subtree to replace this node.data
-				node.right = remove(node.data, node.right);  // Remove the min node in right subtree
+				Node min = minNode(node.right);  // findMin node in right subtree to replace this node's group
+				node.data = min.data;
+				node.more = min.more;
+				node.count = min.count;
+				node.right = removeMin(node.right);  // Unlink that exact node, not just an equal one
 			}
-		}		
+		}
+		return rebalance(node);
+	}
+
+	/**
+	 * Helper method to the remove method Finds the leftmost node of a subtree
+	 * 
+	 * @param node the root of the subtree
+	 * @return the leftmost node
+	 */
+	private Node minNode(Node node) {
+		while (node.left != null) {
+			node = node.left;
+		}
 		return node;
 	}
 
+	/**
+	 * Helper method to the remove method Unlinks the leftmost node of a subtree
+	 * 
+	 * @param node the root of the subtree
+	 * @return an updated reference variable
+	 */
+	private Node removeMin(Node node) {
+		if (node.left == null) {
+			return node.right;
+		}
+		node.left = removeMin(node.left);
+		return rebalance(node);
+	}
+
+	/**
+	 * Replaces the contents of the tree with the given values, building a
+	 * perfectly balanced tree directly. Values already in tree order (ties in
+	 * natural order) are used as they are, in O(n); otherwise a sorted copy is
+	 * made first, in O(n log n). The array itself is never changed
+	 * 
+	 * @param values the values to store
+	 */
+	public void buildFrom(T[] values) {
+		T[] sorted = values;
+		if (!inTreeOrder(values)) {
+			sorted = Arrays.copyOf(values, values.length);
+			Arrays.parallelSort(sorted, (a, b) -> { // Stable, like Arrays.sort
+				int cmp = compareData(a, b);
+				return (cmp != 0) ? cmp : a.compareTo(b);
+			});
+		}
+
+		int[] groupStart = new int[sorted.length + 1]; // Where each run of equal keys starts
+		int groups = 0;
+		for (int i = 0; i < sorted.length; i++) {
+			if (i == 0 || compareData(sorted[i - 1], sorted[i]) != 0) {
+				groupStart[groups++] = i;
+			}
+		}
+		groupStart[groups] = sorted.length;
+
+		root = buildFrom(sorted, groupStart, 0, groups - 1);
+		modCount++;
+	}
+
+	/**
+	 * Helper method for buildFrom Builds a subtree out of a range of groups,
+	 * rooted at the middle one
+	 * 
+	 * @param sorted the values in tree order
+	 * @param groupStart where each group starts in sorted
+	 * @param low the first group of the subtree
+	 * @param high the last group of the subtree
+	 * @return the root of the subtree
+	 */
+	private Node buildFrom(T[] sorted, int[] groupStart, int low, int high) {
+		if (high < low) {
+			return null;
+		}
+		int mid = (low + high) >>> 1;
+		Node node = new Node(sorted, groupStart[mid], groupStart[mid + 1]);
+		node.left = buildFrom(sorted, groupStart, low, mid - 1);
+		node.right = buildFrom(sorted, groupStart, mid + 1, high);
+		update(node);
+		return node;
+	}
+
+	/**
+	 * Determines whether values are sorted the way the tree stores them: by the
+	 * tree's order, with equal keys in natural order
+	 * 
+	 * @param values the values to check
+	 * @return whether values are in tree order
+	 */
+	private boolean inTreeOrder(T[] values) {
+		for (int i = 1; i < values.length; i++) {
+			int cmp = compareData(values[i - 1], values[i]);
+			if (cmp > 0 || (cmp == 0 && values[i - 1].compareTo(values[i]) > 0)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/*** BALANCING ***/
+
+	/**
+	 * Recomputes the height and size of a node from its children
+	 * 
+	 * @param node the node to update
+	 */
+	private void update(Node node) {
+		node.height = Math.max(height(node.left), height(node.right)) + 1;
+		node.size = size(node.left) + size(node.right) + node.count;
+	}
+
+	/**
+	 * Restores the AVL property at a node whose subtrees differ in height by at
+	 * most two
+	 * 
+	 * @param node the node to rebalance
+	 * @return the new root of the subtree
+	 */
+	private Node rebalance(Node node) {
+		update(node);
+		int balance = height(node.left) - height(node.right);
+		if (balance > 1) { // Left heavy
+			if (height(node.left.left) < height(node.left.right)) { // Left-right case
+				node.left = rotateLeft(node.left);
+			}
+			return rotateRight(node);
+		} else if (balance < -1) { // Right heavy
+			if (height(node.right.right) < height(node.right.left)) { // Right-left case
+				node.right = rotateRight(node.right);
+			}
+			return rotateLeft(node);
+		}
+		return node;
+	}
+
+	/**
+	 * Rotates a subtree to the right, lifting its left child
+	 * 
+	 * @param node the root of the subtree
+	 * @return the new root of the subtree
+	 */
+	private Node rotateRight(Node node) {
+		Node pivot = node.left;
+		node.left = pivot.right;
+		pivot.right = node;
+		update(node);
+		update(pivot);
+		return pivot;
+	}
+
+	/**
+	 * Rotates a subtree to the left, lifting its right child
+	 * 
+	 * @param node the root of the subtree
+	 * @return the new root of the subtree
+	 */
+	private Node rotateLeft(Node node) {
+		Node pivot = node.right;
+		node.right = pivot.left;
+		pivot.left = node;
+		update(node);
+		update(pivot);
+		return pivot;
+	}
+
+	/*** RANGE QUERIES ***/
+
+	/**
+	 * Returns all values in sorted order, visited lazily
+	 * 
+	 * @return an iterator over the whole tree
+	 */
+	@Override
+	public Iterator<T> iterator() {
+		return new RangeIterator(null, true, null, true, null);
+	}
+
+	/**
+	 * Returns the values from lo to hi, both inclusive, in sorted order. Values are
+	 * found one at a time as the iterator advances, and only subtrees overlapping
+	 * the bounds are visited, so reading k values costs O(log n + k)
+	 * 
+	 * @param lo the smallest value to include
+	 * @param hi the largest value to include
+	 * @return the values in [lo, hi]
+	 */
+	public Iterable<T> range(T lo, T hi) {
+		return () -> new RangeIterator(lo, true, hi, true, null);
+	}
+
+	/**
+	 * Returns the values smaller than hi in sorted order, visited lazily
+	 * 
+	 * @param hi the bound, not included
+	 * @return the values in [min, hi)
+	 */
+	public Iterable<T> headSet(T hi) {
+		return () -> new RangeIterator(null, true, hi, false, null);
+	}
+
+	/**
+	 * Returns the values from lo up in sorted order, visited lazily
+	 * 
+	 * @param lo the bound, included
+	 * @return the values in [lo, max]
+	 */
+	public Iterable<T> tailSet(T lo) {
+		return () -> new RangeIterator(lo, true, null, true, null);
+	}
+
+	/**
+	 * Returns the values from lo up for as long as they match, in sorted order.
+	 * Meant for prefix scans: in a tree ordered by a String key, every key that
+	 * starts with a prefix sorts at or after the prefix itself, and all of them
+	 * come before the first key that does not
+	 * 
+	 * @param lo a value whose key is the prefix
+	 * @param matches whether a value has the prefix
+	 * @return the matching values, from the first one on
+	 */
+	public Iterable<T> prefix(T lo, Predicate<T> matches) {
+		return () -> new RangeIterator(lo, true, null, true, matches);
+	}
+
+	/**
+	 * In order traversal between optional bounds, keeping only the path to the
+	 * next value on a stack (O(log n) nodes, since the tree is balanced)
+	 */
+	private class RangeIterator implements Iterator<T> {
+		private final ArrayDeque<Node> stack = new ArrayDeque<>();
+		private Node current; // Node whose group is being returned
+		private int offset; // Position in current's group of the next value
+		private final T hi; // null for no upper bound
+		private final boolean hiInclusive;
+		private final Predicate<T> matches; // null to keep every value
+		private final int expectedModCount = modCount;
+
+		/**
+		 * Pushes the path to the first value that is not below lo
+		 * 
+		 * @param lo the lower bound, null for none
+		 * @param loInclusive whether lo itself is in the range
+		 * @param hi the upper bound, null for none
+		 * @param hiInclusive whether hi itself is in the range
+		 * @param matches the condition values must meet, null for none
+		 */
+		private RangeIterator(T lo, boolean loInclusive, T hi, boolean hiInclusive, Predicate<T> matches) {
+			this.hi = hi;
+			this.hiInclusive = hiInclusive;
+			this.matches = matches;
+			Node node = root;
+			while (node != null) {
+				int cmp = (lo == null) ? -1 : compareData(lo, node.data);
+				if (cmp < 0 || (cmp == 0 && loInclusive)) { // node is in range, smaller ones may be too
+					stack.push(node);
+					node = node.left;
+				} else {
+					node = node.right;
+				}
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (current == null || offset == current.count) { // Move on to the next group
+				if (stack.isEmpty()) {
+					current = null;
+					return false;
+				}
+				Node node = stack.pop();
+				for (Node n = node.right; n != null; n = n.left) { // Everything here is > node.data
+					stack.push(n);
+				}
+				int cmp = (hi == null) ? -1 : compareData(node.data, hi);
+				if (cmp > 0 || (cmp == 0 && !hiInclusive)) {
+					end();
+					return false;
+				}
+				current = node;
+				offset = 0;
+			}
+			if (matches != null && !matches.test(current.get(offset))) {
+				end();
+				return false;
+			}
+			return true;
+		}
+
+		/**
+		 * Stops the traversal, since everything after an out of range value is out
+		 * of range too
+		 */
+		private void end() {
+			stack.clear();
+			current = null;
+		}
+
+		@Override
+		public T next() {
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException("next: Tree changed during traversal.");
+			} else if (!hasNext()) {
+				throw new NoSuchElementException("next: No more values in range.");
+			}
+			return current.get(offset++);
+		}
+	}
+
 	/*** ADDITIONAL OPERATIONS ***/
 
 	/**
@@ -412,7 +983,9 @@ public class BST<T extends Comparable<T>> {
 		if(node == null) {
 			return;
 		}
-		System.out.print(node.data + "\n");
+		for (int i = 0; i < node.count; i++) {
+			System.out.print(node.get(i) + "\n");
+		}
 		preOrderPrint(node.left);
 		preOrderPrint(node.right);
 	}
@@ -437,7 +1010,9 @@ public class BST<T extends Comparable<T>> {
 			return;
 		}
 		inOrderPrint(node.left);
-		System.out.print(node.data + "\n");
+		for (int i = 0; i < node.count; i++) {
+			System.out.print(node.get(i) + "\n");
+		}
 		inOrderPrint(node.right);
 	}
 
@@ -459,7 +1034,9 @@ public class BST<T extends Comparable<T>> {
 		}
 		postOrderPrint(node.left);
 		postOrderPrint(node.right);
-		System.out.print(node.data + " ");
+		for (int i = 0; i < node.count; i++) {
+			System.out.print(node.get(i) + " ");
+		}
 	}
 	
 	/**
@@ -469,25 +1046,38 @@ public class BST<T extends Comparable<T>> {
 	 */
 	@Override
 	public String toString() {
-		String s = "";
-		s = toString(s, root);
-		return s;
+		return Writable.toString(this);
 	}
-	
+
 	/**
-	 * Helper method to toString method Creates a string representing BST tree using in order traversal
+	 * Writes the data in sorted order, each value on its own line, without
+	 * building it as one String
 	 * 
-	 * @return String representing BST data in sorted order
+	 * @param out where to write
+	 * @throws IOException when out throws it
 	 */
-	private String toString(String s, Node node) {
-		if(node == null) {
-			return s;
-		}
-		s = toString(s, node.left);
-		s += node.data + "\n";
-		s = toString(s, node.right);
+	@Override
+	public void writeTo(Appendable out) throws IOException {
+		writeTo(out, root);
+	}
 
-		return s;
+	/**
+	 * Helper method to writeTo method Writes a subtree using in order traversal
+	 * 
+	 * @param out where to write
+	 * @param node the root of the subtree
+	 * @throws IOException when out throws it
+	 */
+	private void writeTo(Appendable out, Node node) throws IOException {
+		if (node == null) {
+			return;
+		}
+		writeTo(out, node.left);
+		for (int i = 0; i < node.count; i++) {
+			Writable.write(node.get(i), out);
+			out.append('\n');
+		}
+		writeTo(out, node.right);
 	}
 	
 	/**
@@ -0,0 +1,162 @@
+/**
+ * CatalogBatch.java
+ * CIS 22C, Course Project
+ * Runs catalog commands read from a file or stdin, one per line, and writes
+ * one JSON object per command. Commands:
+ *   ADD crn|title|instructor|size|units|times|location
+ *   UPDATE crn|title|instructor|size|units|times|location
+ *   DEL crn
+ *   GET crn
+ *   FIND title
+ * Blank lines and lines starting with # are skipped. Changes are logged to
+ * the catalog's journal and forced to disk once per batch of commands rather
+ * than once per change.
+ */
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+public class CatalogBatch {
+
+	private static final int BATCH_SIZE = 1000; // Commands between journal syncs
+
+	private final CourseCatalog catalog;
+	private final Appendable out;
+	private int changes; // Changes not yet synced to the journal
+
+	/**
+	 * @param catalog the catalog to run commands on
+	 * @param out where the results go
+	 */
+	public CatalogBatch(CourseCatalog catalog, Appendable out) {
+		this.catalog = catalog;
+		this.out = out;
+	}
+
+	/**
+	 * Runs every command in a reader, then syncs the journal
+	 *
+	 * @param in the commands
+	 * @return the number of commands that failed
+	 * @throws IOException when in or out throws it
+	 */
+	public int run(BufferedReader in) throws IOException {
+		int failed = 0;
+		int lineNumber = 0;
+		String line;
+		while ((line = in.readLine()) != null) {
+			lineNumber++;
+			if (line.isEmpty() || line.startsWith("#")) {
+				continue;
+			}
+			if (!execute(line, lineNumber)) {
+				failed++;
+			}
+			if (changes >= BATCH_SIZE) {
+				catalog.commit();
+				changes = 0;
+			}
+		}
+		catalog.commit();
+		return failed;
+	}
+
+	/**
+	 * Runs one command and writes its result
+	 *
+	 * @param line the command
+	 * @param lineNumber where the command is in the input, echoed in the result
+	 * @return whether the command succeeded
+	 * @throws IOException when out throws it
+	 */
+	private boolean execute(String line, int lineNumber) throws IOException {
+		int space = line.indexOf(' ');
+		String op = (space == -1 ? line : line.substring(0, space)).toUpperCase();
+		String arg = (space == -1) ? "" : line.substring(space + 1);
+		out.append("{\"line\":").append(Integer.toString(lineNumber));
+		Json.string(out.append(",\"op\":"), op);
+
+		switch (op) {
+		case "ADD":
+		case "UPDATE": {
+			Course c;
+			try {
+				c = parseCourse(arg);
+			} catch (IllegalArgumentException e) {
+				return error(e.getMessage());
+			}
+			boolean done = op.equals("ADD") ? catalog.addCourse(c) : catalog.updateCourse(c);
+			if (!done) {
+				return error(op.equals("ADD") ? "CRN is not a number or already listed" : "not found");
+			}
+			changes++;
+			Json.string(out.append(",\"ok\":true,\"crn\":"), c.getCourseID()).append("}\n");
+			return true;
+		}
+		case "DEL":
+			if (!catalog.deleteCourse(arg.trim())) {
+				return error("not found");
+			}
+			changes++;
+			Json.string(out.append(",\"ok\":true,\"crn\":"), arg.trim()).append("}\n");
+			return true;
+		case "GET": {
+			Course c = catalog.getCourse(arg.trim());
+			if (c == null) {
+				return error("not found");
+			}
+			out.append(",\"ok\":true,\"course\":");
+			c.writeJson(out);
+			out.append("}\n");
+			return true;
+		}
+		case "FIND": {
+			out.append(",\"ok\":true,\"courses\":[");
+			boolean first = true;
+			for (Course c : catalog.findByTitle(arg)) {
+				if (!first) {
+					out.append(',');
+				}
+				c.writeJson(out);
+				first = false;
+			}
+			out.append("]}\n");
+			return true;
+		}
+		default:
+			return error("unknown command");
+		}
+	}
+
+	/**
+	 * Finishes the result of a failed command
+	 *
+	 * @param message why it failed
+	 * @return false
+	 * @throws IOException when out throws it
+	 */
+	private boolean error(String message) throws IOException {
+		Json.string(out.append(",\"ok\":false,\"error\":"), message).append("}\n");
+		return false;
+	}
+
+	/**
+	 * Parses the fields of ADD and UPDATE
+	 *
+	 * @param arg crn|title|instructor|size|units|times|location
+	 * @return the course
+	 * @throws IllegalArgumentException when a field is missing or not a number
+	 */
+	static Course parseCourse(String arg) throws IllegalArgumentException {
+		String[] f = arg.split("\\|", -1);
+		if (f.length != 7) {
+			throw new IllegalArgumentException("expected 7 fields separated by |, found " + f.length);
+		}
+		try {
+			return new Course(f[0].trim(), f[1], f[2], Integer.parseInt(f[3].trim()), Integer.parseInt(f[4].trim()),
+					f[5], f[6]);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("size and units must be numbers");
+		}
+	}
+}
@@ -0,0 +1,544 @@
+/**
+ * CatalogJournal.java
+ * CIS 22C, Course Project
+ * Append-only log of the changes made to a catalog since its last snapshot,
+ * so a change costs one small record instead of rewriting the whole file.
+ *
+ * The journal of fileName is a series of segment files
+ * fileName.<first sequence number>.journal. Each starts with an int magic and
+ * an int version, followed by records (big-endian):
+ *   int body length
+ *   body: long sequence number, byte type, then for ADD and UPDATE the CRN,
+ *         title, instructor, times and location as int length + UTF-8 bytes
+ *         and the class size and units as ints, for DELETE only the CRN
+ *   int CRC32 of the body
+ *
+ * Records are written by one background thread. It writes everything queued
+ * since its last write in one call and forces it to disk once, so changes
+ * made close together share one fsync. Compaction starts a new segment,
+ * writes fileName.snap in the background and only then deletes the segments
+ * before the new one, so every change is always in the journal, the snapshot
+ * or both. A journal that does not continue from the data loaded is never
+ * deleted; open reports it instead.
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+public class CatalogJournal {
+
+	public static final byte ADD = 1;
+	public static final byte DELETE = 2;
+	public static final byte UPDATE = 3;
+
+	private static final int MAGIC = 0x43434A31; // "CCJ1"
+	private static final int VERSION = 1;
+	private static final int HEADER = 8; // Bytes before the first record of a segment
+	private static final int COMPACT_RECORDS = 1000; // Records logged before the journal is compacted
+
+	/**
+	 * One change read back from the journal
+	 */
+	public static class Entry {
+		public final long sequence;
+		public final byte type;
+		public final String courseID; // CRN of the course changed
+		public final Course course; // The course added or its new version, null for DELETE
+
+		private Entry(long sequence, byte type, String courseID, Course course) {
+			this.sequence = sequence;
+			this.type = type;
+			this.courseID = courseID;
+			this.course = course;
+		}
+	}
+
+	/**
+	 * Tells the writer thread to close its segment and start a new one
+	 */
+	private static class Rotate {
+		private final long firstSequence;
+
+		private Rotate(long firstSequence) {
+			this.firstSequence = firstSequence;
+		}
+	}
+
+	private static final Object CLOSE = new Object(); // Tells the writer thread to stop
+
+	private final String fileName;
+	private final LinkedBlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+	private final Thread writer;
+	private final ExecutorService compactor;
+
+	// Guarded by this
+	private long lastSequence; // Sequence number of the last record appended
+	private long durable; // Every record up to this one is on disk
+	private long segmentStart; // First sequence number of the segment on disk being written to
+	private int sinceCompaction; // Records appended since the last compaction started
+	private boolean compacting;
+	private IOException failure; // Set when the writer thread could not write
+
+	/**
+	 * Opens the journal of a data file for appending, after handing every
+	 * record newer than the loaded catalog to replay
+	 *
+	 * @param fileName name of the data file without an extension
+	 * @param loadedSequence the last change the loaded catalog already holds,
+	 *                       0 when it was read from the .txt file
+	 * @param replay applies one change to the catalog, called in order
+	 * @return the journal, ready for new records
+	 * @throws IOException when the journal cannot be read or created, or when
+	 *                     it starts after loadedSequence + 1, so the changes in
+	 *                     between are in neither the loaded data nor the journal
+	 */
+	public static CatalogJournal open(String fileName, long loadedSequence, Consumer<Entry> replay)
+			throws IOException {
+		TreeMap<Long, Path> segments = segments(fileName);
+		long last = loadedSequence;
+		if (!segments.isEmpty() && segments.firstKey() > loadedSequence + 1) { // Kept, it may be all there is of them
+			throw new IOException("open: The journal of " + fileName + " starts at change " + segments.firstKey()
+					+ " but the data loaded ends at change " + loadedSequence + ".");
+		}
+		for (Path segment : segments.values()) {
+			last = replay(segment, last, replay);
+		}
+		if (last == loadedSequence) { // The loaded catalog already holds every record
+			deleteSegments(segments, Long.MAX_VALUE);
+		}
+		CatalogJournal journal = new CatalogJournal(fileName, last);
+		if (last > loadedSequence) {
+			System.out.println((last - loadedSequence) + " changes restored from the journal");
+			journal.sinceCompaction = COMPACT_RECORDS; // Fold them into a snapshot soon
+		}
+		return journal;
+	}
+
+	/**
+	 * Deletes the journal of a data file, once the file has been rewritten
+	 * with everything the journal held
+	 *
+	 * @param fileName name of the data file without an extension
+	 * @throws IOException when a segment cannot be deleted
+	 */
+	public static void discard(String fileName) throws IOException {
+		deleteSegments(segments(fileName), Long.MAX_VALUE);
+	}
+
+	private CatalogJournal(String fileName, long lastSequence) throws IOException {
+		this.fileName = fileName;
+		this.lastSequence = lastSequence;
+		this.durable = lastSequence;
+		this.segmentStart = lastSequence + 1;
+		FileChannel first = openSegment(lastSequence + 1);
+		writer = new Thread(() -> write(first), "journal-writer");
+		writer.setDaemon(true);
+		writer.start();
+		compactor = Executors.newSingleThreadExecutor(r -> {
+			Thread t = new Thread(r, "journal-compactor");
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	/*** APPENDING ***/
+
+	/**
+	 * Appends an ADD record. Returns once the record is queued; call sync to
+	 * wait until it is on disk
+	 *
+	 * @param c the course added
+	 * @return the sequence number of the record
+	 */
+	public long logAdd(Course c) {
+		return append(ADD, c.getCourseID(), c);
+	}
+
+	/**
+	 * Appends a DELETE record
+	 *
+	 * @param courseID the CRN of the course deleted
+	 * @return the sequence number of the record
+	 */
+	public long logDelete(String courseID) {
+		return append(DELETE, courseID, null);
+	}
+
+	/**
+	 * Appends an UPDATE record, which replaces the course with the same CRN
+	 *
+	 * @param c the new version of the course
+	 * @return the sequence number of the record
+	 */
+	public long logUpdate(Course c) {
+		return append(UPDATE, c.getCourseID(), c);
+	}
+
+	private synchronized long append(byte type, String courseID, Course c) {
+		long sequence = ++lastSequence;
+		queue.add(encode(sequence, type, courseID, c));
+		sinceCompaction++;
+		return sequence;
+	}
+
+	/**
+	 * Waits until every record appended so far is on disk. Records appended by
+	 * other threads meanwhile are written in the same batch
+	 *
+	 * @throws IOException when the journal could not be written
+	 */
+	public synchronized void sync() throws IOException {
+		long target = lastSequence;
+		boolean interrupted = false;
+		while (durable < target && failure == null) {
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	/**
+	 * Returns the sequence number of the last record appended, which is what a
+	 * snapshot of the catalog taken now holds
+	 */
+	public synchronized long lastSequence() {
+		return lastSequence;
+	}
+
+	/**
+	 * Body of the writer thread. Takes everything queued, writes it with one
+	 * call, forces it to disk and wakes up the threads waiting in sync
+	 *
+	 * @param channel the segment to start writing to
+	 */
+	private void write(FileChannel channel) {
+		ArrayList<Object> batch = new ArrayList<>();
+		boolean closing = false;
+		while (!closing) {
+			try {
+				batch.add(queue.take());
+				queue.drainTo(batch);
+				long written = 0;
+				long started = 0; // First sequence number of a segment opened in this batch
+				ArrayList<ByteBuffer> records = new ArrayList<>(batch.size());
+				for (Object o : batch) {
+					if (o instanceof ByteBuffer) {
+						records.add((ByteBuffer) o);
+						written = ((ByteBuffer) o).getLong(4);
+					} else if (o instanceof Rotate) {
+						writeAll(channel, records);
+						channel.force(false);
+						channel.close();
+						channel = openSegment(((Rotate) o).firstSequence);
+						started = ((Rotate) o).firstSequence;
+					} else if (o == CLOSE) {
+						closing = true;
+					}
+				}
+				writeAll(channel, records);
+				channel.force(false);
+				synchronized (this) {
+					durable = Math.max(durable, written);
+					segmentStart = Math.max(segmentStart, started);
+					notifyAll();
+				}
+			} catch (IOException e) {
+				synchronized (this) {
+					failure = e;
+					notifyAll();
+				}
+				return;
+			} catch (InterruptedException e) {
+				closing = true;
+			} finally {
+				batch.clear();
+			}
+		}
+		try {
+			channel.close();
+		} catch (IOException e) {
+			System.out.println(e);
+		}
+	}
+
+	/**
+	 * Helper method for write Writes records with as few calls as the channel
+	 * allows and empties the list
+	 */
+	private static void writeAll(FileChannel channel, ArrayList<ByteBuffer> records) throws IOException {
+		ByteBuffer[] buffers = records.toArray(new ByteBuffer[0]);
+		long remaining = 0;
+		for (ByteBuffer b : buffers) {
+			remaining += b.remaining();
+		}
+		while (remaining > 0) {
+			remaining -= channel.write(buffers);
+		}
+		records.clear();
+	}
+
+	/*** COMPACTION ***/
+
+	/**
+	 * Determines whether enough records have been logged that the catalog
+	 * should be compacted, and no compaction is running
+	 */
+	public synchronized boolean needsCompaction() {
+		return sinceCompaction >= COMPACT_RECORDS && !compacting;
+	}
+
+	/**
+	 * Determines whether anything was logged since the last compaction started,
+	 * and no compaction is running
+	 */
+	public synchronized boolean hasNewRecords() {
+		return sinceCompaction > 0 && !compacting;
+	}
+
+	/**
+	 * Starts a new segment and, in the background, writes the snapshot and
+	 * deletes the segments before the new one. Nothing is deleted until the new
+	 * segment and the snapshot are both on disk. The snapshot must hold exactly
+	 * the changes up to lastSequence
+	 *
+	 * @param snapshot copy of the catalog taken after the last append
+	 */
+	public synchronized void compact(CatalogSnapshot snapshot) {
+		if (compacting) {
+			return;
+		}
+		compacting = true;
+		sinceCompaction = 0;
+		long firstSequence = lastSequence + 1;
+		queue.add(new Rotate(firstSequence));
+		compactor.execute(() -> {
+			try {
+				awaitSegment(firstSequence); // The old segments are closed and forced once it is on disk
+				snapshot.write(fileName); // Kept back if a save wrote a newer one, which holds these changes too
+				deleteSegments(segments(fileName), firstSequence);
+			} catch (IOException e) {
+				System.out.println("Journal compaction failed: " + e.getMessage());
+			} finally {
+				synchronized (this) {
+					compacting = false;
+				}
+			}
+		});
+	}
+
+	/**
+	 * Helper method for compact Waits until the writer thread has forced the
+	 * segment that starts at a sequence number to disk, which it only opens
+	 * after forcing and closing the one before
+	 *
+	 * @throws IOException when the journal could not be written
+	 */
+	private synchronized void awaitSegment(long firstSequence) throws IOException {
+		boolean interrupted = false;
+		while (segmentStart < firstSequence && failure == null) {
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	/**
+	 * Waits for the records and any compaction in progress, then stops the
+	 * background threads
+	 *
+	 * @throws IOException when the journal could not be written
+	 */
+	public void close() throws IOException {
+		compactor.shutdown();
+		try {
+			compactor.awaitTermination(1, TimeUnit.MINUTES);
+			queue.add(CLOSE);
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		synchronized (this) {
+			if (failure != null) {
+				throw failure;
+			}
+		}
+	}
+
+	/*** FILES ***/
+
+	/**
+	 * Returns the path of the segment of a data file that starts at a record
+	 */
+	private static Path segmentPath(String fileName, long firstSequence) {
+		return Paths.get(fileName + "." + firstSequence + ".journal");
+	}
+
+	private FileChannel openSegment(long firstSequence) throws IOException {
+		FileChannel channel = FileChannel.open(segmentPath(fileName, firstSequence), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		ByteBuffer header = ByteBuffer.allocate(HEADER).putInt(MAGIC).putInt(VERSION);
+		header.flip();
+		while (header.hasRemaining()) {
+			channel.write(header);
+		}
+		return channel;
+	}
+
+	/**
+	 * Returns the segments of a data file's journal by their first sequence
+	 * number
+	 */
+	private static TreeMap<Long, Path> segments(String fileName) throws IOException {
+		Path base = Paths.get(fileName).toAbsolutePath();
+		String prefix = base.getFileName() + ".";
+		TreeMap<Long, Path> segments = new TreeMap<>();
+		try (DirectoryStream<Path> dir = Files.newDirectoryStream(base.getParent(), prefix + "*.journal")) {
+			for (Path p : dir) {
+				String name = p.getFileName().toString();
+				String number = name.substring(prefix.length(), name.length() - ".journal".length());
+				try {
+					segments.put(Long.parseLong(number), p);
+				} catch (NumberFormatException e) { // Some other file named like a segment
+				}
+			}
+		}
+		return segments;
+	}
+
+	/**
+	 * Deletes the segments that start before a sequence number
+	 */
+	private static void deleteSegments(TreeMap<Long, Path> segments, long before) throws IOException {
+		for (Path p : segments.headMap(before).values()) {
+			Files.deleteIfExists(p);
+		}
+	}
+
+	/*** RECORDS ***/
+
+	/**
+	 * Builds the bytes of one record
+	 */
+	private static ByteBuffer encode(long sequence, byte type, String courseID, Course c) {
+		byte[][] strings = (c == null) ? new byte[][] { utf8(courseID) }
+				: new byte[][] { utf8(courseID), utf8(c.getTitle()), utf8(c.getTeacher()), utf8(c.meetingTimes()),
+						utf8(c.location()) };
+		int length = Long.BYTES + 1 + ((c == null) ? 0 : 2 * Integer.BYTES);
+		for (byte[] s : strings) {
+			length += Integer.BYTES + s.length;
+		}
+		ByteBuffer record = ByteBuffer.allocate(Integer.BYTES + length + Integer.BYTES);
+		record.putInt(length).putLong(sequence).put(type);
+		for (byte[] s : strings) {
+			record.putInt(s.length).put(s);
+		}
+		if (c != null) {
+			record.putInt(c.getCourseSize()).putInt(c.getUnits());
+		}
+		CRC32 crc = new CRC32();
+		crc.update(record.array(), Integer.BYTES, length);
+		record.putInt((int) crc.getValue());
+		record.flip();
+		return record;
+	}
+
+	private static byte[] utf8(String s) {
+		return s.getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Reads a segment and hands each record newer than last to replay. Reading
+	 * stops at the first incomplete or damaged record, which is what a crash
+	 * in the middle of a write leaves behind
+	 *
+	 * @return the sequence number of the last record replayed
+	 */
+	private static long replay(Path segment, long last, Consumer<Entry> replay) throws IOException {
+		try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size < HEADER) {
+				return last;
+			}
+			MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			if (buf.getInt(0) != MAGIC || buf.getInt(4) != VERSION) {
+				throw new IOException("replay: " + segment + " is not a version " + VERSION + " journal.");
+			}
+			int pos = HEADER;
+			CRC32 crc = new CRC32();
+			while (pos + Integer.BYTES <= size) {
+				int length = buf.getInt(pos);
+				if (length < Long.BYTES + 1 || (long) pos + 2 * Integer.BYTES + length > size) {
+					break;
+				}
+				crc.reset();
+				crc.update(buf.duplicate().position(pos + Integer.BYTES).limit(pos + Integer.BYTES + length));
+				if ((int) crc.getValue() != buf.getInt(pos + Integer.BYTES + length)) {
+					System.out.println("Damaged record in " + segment.getFileName() + ", ignoring the rest of it");
+					break;
+				}
+				Entry entry = decode(buf.duplicate().position(pos + Integer.BYTES));
+				if (entry.sequence > last) { // Records a snapshot already holds are skipped
+					replay.accept(entry);
+					last = entry.sequence;
+				}
+				pos += 2 * Integer.BYTES + length;
+			}
+		}
+		return last;
+	}
+
+	private static Entry decode(ByteBuffer body) {
+		long sequence = body.getLong();
+		byte type = body.get();
+		String courseID = string(body);
+		Course c = null;
+		if (type != DELETE) {
+			String title = string(body);
+			String instructor = string(body);
+			String schedule = string(body);
+			String location = string(body);
+			int size = body.getInt();
+			int units = body.getInt();
+			c = new Course(courseID, title, instructor, size, units, schedule, location);
+		}
+		return new Entry(sequence, type, courseID, c);
+	}
+
+	private static String string(ByteBuffer body) {
+		byte[] bytes = new byte[body.getInt()];
+		body.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,391 @@
+/**
+ * CatalogLoader.java
+ * CIS 22C, Course Project
+ * Reads catalog .txt files by memory-mapping them and scanning the records
+ * straight from the mapped bytes. Numeric fields are parsed from the bytes
+ * without building Strings. The CRN is decoded directly into the String the
+ * Course keeps, and the other text fields go through a StringPool, so a
+ * title, instructor, meeting time or location shared by many sections is
+ * decoded once and kept once. Large files are split at record boundaries
+ * and the pieces parsed in parallel.
+ */
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+public class CatalogLoader {
+
+	private static final int MAX_WINDOW = Integer.MAX_VALUE; // Largest region one mapping can cover
+	private static final int FIELDS = 7; // Lines per course record
+
+	private static final long PARALLEL_MIN = 4 << 20; // Smallest file worth parsing in parallel
+	private static final int PIECE_MIN = 1 << 20; // Smallest piece one task parses
+
+	private static final byte[] FIRST_LABEL = "CRN:".getBytes(StandardCharsets.US_ASCII);
+	// Labels each line of a record may have, in order
+	private static final byte[][][] LABELS = { labels("CRN"), labels("Course"), labels("Instructor"),
+			labels("Class Size"), labels("Units"), labels("Times", "Meeting Times"), labels("Location") };
+
+	private byte[] scratch = new byte[256]; // Reused buffer for decoding text fields
+	private final StringPool pool = new StringPool(); // Shared text fields of the courses parsed so far
+
+	/**
+	 * Reads every course in a .txt file, in file order. Files of several
+	 * megabytes are parsed in parallel when more than one core is available
+	 *
+	 * @param fileName name of the file without the .txt extension
+	 * @precondition .txt file to read data from must be in proper format
+	 * @return the courses listed in the file
+	 * @throws IOException when the file cannot be read or a record is malformed
+	 */
+	public static ArrayList<Course> load(String fileName) throws IOException {
+		Path path = Paths.get(fileName + ".txt");
+		long size = Files.size(path);
+		if (size >= PARALLEL_MIN && size <= MAX_WINDOW && ForkJoinPool.getCommonPoolParallelism() > 1) {
+			return loadParallel(path, ForkJoinPool.commonPool());
+		}
+		return new CatalogLoader().load(path, MAX_WINDOW);
+	}
+
+	/**
+	 * Reads every course in a file by parsing pieces of it in parallel. The
+	 * pieces are split at blank lines and their courses joined back in file
+	 * order, so the result is the same list load returns. Each piece pools its
+	 * own Strings, and one pass at the end makes the pieces share theirs
+	 *
+	 * @param path the file to read, at most MAX_WINDOW bytes long
+	 * @param pool the pool to parse on
+	 * @return the courses listed in the file
+	 * @throws IOException when the file cannot be read or a record is malformed
+	 */
+	static ArrayList<Course> loadParallel(Path path, ForkJoinPool pool) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size > MAX_WINDOW) {
+				throw new IOException("loadParallel: File is larger than " + MAX_WINDOW + " bytes.");
+			}
+			MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			int start = skipHeader(buf, 0, (int) size);
+			int pieceSize = (int) Math.max(PIECE_MIN, size / (pool.getParallelism() * 4L));
+			ArrayList<Course> courses;
+			try {
+				courses = pool.invoke(new ParseTask(buf, start, (int) size, pieceSize));
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+			StringPool strings = new StringPool();
+			for (Course c : courses) {
+				c.setTitle(strings.intern(c.getTitle()));
+				c.setTeacher(strings.intern(c.getTeacher()));
+				c.setMeetingTimes(strings.intern(c.meetingTimes()));
+				c.setLocation(strings.intern(c.location()));
+			}
+			return courses;
+		}
+	}
+
+	/**
+	 * Parses a range of the mapped file, halving it at a record boundary until
+	 * the pieces are small. Reads only use absolute gets, so every task can
+	 * share the same buffer
+	 */
+	private static class ParseTask extends RecursiveTask<ArrayList<Course>> {
+		private static final long serialVersionUID = 1L;
+
+		private final ByteBuffer buf;
+		private final int from, to, pieceSize;
+
+		ParseTask(ByteBuffer buf, int from, int to, int pieceSize) {
+			this.buf = buf;
+			this.from = from;
+			this.to = to;
+			this.pieceSize = pieceSize;
+		}
+
+		@Override
+		protected ArrayList<Course> compute() {
+			int split = (to - from > pieceSize) ? nextRecordStart(buf, from + (to - from) / 2, to) : to;
+			if (split >= to) {
+				ArrayList<Course> courses = new ArrayList<>();
+				try {
+					new CatalogLoader().parse(buf, from, to, courses);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+				return courses;
+			}
+			ParseTask right = new ParseTask(buf, split, to, pieceSize);
+			right.fork();
+			ArrayList<Course> courses = new ParseTask(buf, from, split, pieceSize).compute();
+			courses.addAll(right.join());
+			return courses;
+		}
+	}
+
+	/**
+	 * Reads every course in a file, mapping at most window bytes at a time. Each
+	 * window ends at the last blank line in it, so no record is split between
+	 * two mappings
+	 *
+	 * @param path the file to read
+	 * @param window the most bytes to map at once
+	 * @return the courses listed in the file
+	 * @throws IOException when the file cannot be read or a record is malformed
+	 */
+	ArrayList<Course> load(Path path, int window) throws IOException {
+		ArrayList<Course> courses = new ArrayList<>();
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = channel.size();
+			long pos = 0;
+			boolean header = true;
+			while (pos < size) {
+				int length = (int) Math.min(size - pos, window);
+				MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, pos, length);
+				int start = 0;
+				if (header) {
+					start = skipHeader(buf, 0, length);
+					header = false;
+				}
+				int end = (pos + length == size) ? length : lastRecordEnd(buf, start, length);
+				if (end <= start && pos + length < size) {
+					throw new IOException("load: A record is larger than " + window + " bytes.");
+				}
+				parse(buf, start, end, courses);
+				pos += end;
+			}
+		}
+		return courses;
+	}
+
+	/**
+	 * Returns where the first record starts, skipping the title and course count
+	 * lines at the top of the file
+	 *
+	 * @param buf the bytes of the file
+	 * @param from where the file starts in buf
+	 * @param to where the bytes end
+	 * @return the position of the first line that starts with "CRN:", or to if
+	 *         there is none
+	 */
+	static int skipHeader(ByteBuffer buf, int from, int to) {
+		int pos = from;
+		while (pos < to && !startsWith(buf, pos, to, FIRST_LABEL)) {
+			pos = nextLine(buf, pos, to);
+		}
+		return pos;
+	}
+
+	/**
+	 * Returns the position just past the last blank line in a range, which is
+	 * where a record can be cut off safely
+	 *
+	 * @param buf the bytes to look in
+	 * @param from where to stop looking
+	 * @param to where the range ends
+	 * @return the position after the last blank line, or from if there is none
+	 */
+	static int lastRecordEnd(ByteBuffer buf, int from, int to) {
+		for (int i = to - 1; i > from; i--) {
+			if (buf.get(i) == '\n') {
+				int j = i - 1;
+				if (j >= from && buf.get(j) == '\r') {
+					j--;
+				}
+				if (j >= from && buf.get(j) == '\n') {
+					return i + 1;
+				}
+			}
+		}
+		return from;
+	}
+
+	/**
+	 * Returns the position just past the first blank line at or after a
+	 * position, where the next record can start
+	 *
+	 * @param buf the bytes to look in
+	 * @param from where to start looking
+	 * @param to where the range ends
+	 * @return the position after the blank line, or to if there is none
+	 */
+	static int nextRecordStart(ByteBuffer buf, int from, int to) {
+		int pos = nextLine(buf, from, to); // from may be in the middle of a line
+		while (pos < to) {
+			if (lineEnd(buf, pos, to) == pos) {
+				return nextLine(buf, pos, to);
+			}
+			pos = nextLine(buf, pos, to);
+		}
+		return to;
+	}
+
+	/**
+	 * Parses every record between two positions. Records are seven
+	 * "Label: value" lines, in the order CRN, Course, Instructor, Class Size,
+	 * Units, Times (or Meeting Times), Location, separated by one or more
+	 * blank lines. A line
+	 * with another label, such as one of a record missing a line, is an error
+	 *
+	 * @param buf the bytes to parse
+	 * @param from where the first record starts (or blank lines before it)
+	 * @param to where the bytes to parse end
+	 * @param courses the list the courses are added to, in order
+	 * @throws IOException when a record is malformed
+	 */
+	void parse(ByteBuffer buf, int from, int to, ArrayList<Course> courses) throws IOException {
+		int[] valueStart = new int[FIELDS];
+		int[] valueEnd = new int[FIELDS];
+		int pos = from;
+		while (pos < to) {
+			int lineEnd = lineEnd(buf, pos, to);
+			if (lineEnd == pos) { // Blank line between records
+				pos = nextLine(buf, pos, to);
+				continue;
+			}
+			for (int field = 0; field < FIELDS; field++) {
+				if (pos >= to) {
+					throw new IOException("parse: Record ends early at byte " + pos + ".");
+				}
+				lineEnd = lineEnd(buf, pos, to);
+				int colon = indexOfSeparator(buf, pos, lineEnd);
+				if (colon == -1) {
+					throw new IOException("parse: Expected \"Label: value\" at byte " + pos + ".");
+				}
+				if (!hasLabel(buf, pos, colon, LABELS[field])) {
+					throw new IOException("parse: Expected \"" + new String(LABELS[field][0], StandardCharsets.US_ASCII)
+							+ ": \" at byte " + pos + ".");
+				}
+				valueStart[field] = colon + 2;
+				valueEnd[field] = lineEnd;
+				pos = nextLine(buf, pos, to);
+			}
+			String courseID = text(buf, valueStart[0], valueEnd[0]);
+			String title = pool.intern(buf, valueStart[1], valueEnd[1]);
+			String instructor = pool.intern(buf, valueStart[2], valueEnd[2]);
+			int size = number(buf, valueStart[3], valueEnd[3]);
+			int units = number(buf, valueStart[4], valueEnd[4]);
+			String schedule = pool.intern(buf, valueStart[5], valueEnd[5]);
+			String location = pool.intern(buf, valueStart[6], valueEnd[6]);
+			courses.add(new Course(courseID, title, instructor, size, units, schedule, location));
+		}
+	}
+
+	/**
+	 * Determines whether the label of a line, the bytes before its ": ", is
+	 * one of the labels allowed
+	 */
+	private static boolean hasLabel(ByteBuffer buf, int from, int colon, byte[][] allowed) {
+		for (byte[] label : allowed) {
+			if (colon - from == label.length && startsWith(buf, from, colon, label)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static byte[][] labels(String... labels) {
+		byte[][] bytes = new byte[labels.length][];
+		for (int i = 0; i < labels.length; i++) {
+			bytes[i] = labels[i].getBytes(StandardCharsets.US_ASCII);
+		}
+		return bytes;
+	}
+
+	/**
+	 * Returns the end of the line starting at pos, not counting \r\n or \n
+	 */
+	private static int lineEnd(ByteBuffer buf, int pos, int to) {
+		int i = pos;
+		while (i < to && buf.get(i) != '\n') {
+			i++;
+		}
+		if (i > pos && buf.get(i - 1) == '\r') {
+			i--;
+		}
+		return i;
+	}
+
+	/**
+	 * Returns the start of the line after the one starting at pos
+	 */
+	private static int nextLine(ByteBuffer buf, int pos, int to) {
+		while (pos < to && buf.get(pos) != '\n') {
+			pos++;
+		}
+		return Math.min(pos + 1, to);
+	}
+
+	/**
+	 * Returns the position of the first ": " in a line, or -1
+	 */
+	private static int indexOfSeparator(ByteBuffer buf, int from, int to) {
+		for (int i = from; i + 1 < to; i++) {
+			if (buf.get(i) == ':' && buf.get(i + 1) == ' ') {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static boolean startsWith(ByteBuffer buf, int pos, int to, byte[] prefix) {
+		if (to - pos < prefix.length) {
+			return false;
+		}
+		for (int i = 0; i < prefix.length; i++) {
+			if (buf.get(pos + i) != prefix[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Decodes a UTF-8 field into a String
+	 */
+	private String text(ByteBuffer buf, int from, int to) {
+		int length = to - from;
+		if (length > scratch.length) {
+			scratch = new byte[Math.max(length, scratch.length * 2)];
+		}
+		buf.get(from, scratch, 0, length);
+		return new String(scratch, 0, length, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Parses a decimal int field straight from the bytes
+	 *
+	 * @throws NumberFormatException when the field is not an int, as
+	 *                               Integer.parseInt would
+	 */
+	static int number(ByteBuffer buf, int from, int to) throws NumberFormatException {
+		boolean negative = from < to && buf.get(from) == '-';
+		int i = negative ? from + 1 : from;
+		if (i == to || to - i > 10) {
+			throw new NumberFormatException("number: Not a number at byte " + from + ".");
+		}
+		long value = 0;
+		for (; i < to; i++) {
+			int digit = buf.get(i) - '0';
+			if (digit < 0 || digit > 9) {
+				throw new NumberFormatException("number: Not a number at byte " + from + ".");
+			}
+			value = value * 10 + digit;
+		}
+		value = negative ? -value : value;
+		if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+			throw new NumberFormatException("number: Out of range at byte " + from + ".");
+		}
+		return (int) value;
+	}
+}
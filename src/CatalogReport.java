@@ -0,0 +1,103 @@
+/**
+ * CatalogReport.java
+ * CIS 22C, Course Project
+ * Prints diagnostics about how a catalog file is stored, for choosing between
+ * implementation options from measured numbers
+ */
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+
+public class CatalogReport {
+
+	private static final int COURSE_BYTES = 48; // Header, 4 ints and 5 references, compressed oops
+	private static final int STRING_BYTES = 24; // String header, hash, coder and array reference
+	private static final int ARRAY_BYTES = 16; // byte[] header and length
+
+	/**
+	 * Loads a catalog and prints the report for it
+	 * 
+	 * @param arg the name of the data file without .txt, ClassData by default
+	 */
+	public static void main(String[] arg) {
+		String fileName = arg.length > 0 ? arg[0] : "ClassData";
+		try {
+			ArrayList<Course> courses = CatalogLoader.load(fileName);
+			System.out.println(courses.size() + " courses in " + fileName + ".txt\n");
+			printHashReport(courses);
+			printFootprintReport(courses);
+		} catch (IOException e) {
+			System.out.println(e);
+		}
+	}
+
+	/**
+	 * Builds a Hash of the courses with each CourseHash strategy and prints its
+	 * collision report. Every table is presized the same way so only the
+	 * strategy differs
+	 * 
+	 * @param courses the courses to hash
+	 */
+	private static void printHashReport(ArrayList<Course> courses) {
+		for (CourseHash strategy : CourseHash.values()) {
+			Hash<Course> ht = new Hash<>(courses.size() * 2, strategy);
+			for (Course c : courses) {
+				ht.insert(c);
+			}
+			System.out.println("*** Hash strategy " + strategy + " ***");
+			System.out.println(ht.collisionReport());
+		}
+	}
+
+	/**
+	 * Prints the estimated heap taken by the courses and their Strings, once
+	 * as loaded, where courses share pooled Strings, and once as it would be
+	 * with a String per field per course
+	 * 
+	 * @param courses the courses to measure
+	 */
+	private static void printFootprintReport(ArrayList<Course> courses) {
+		IdentityHashMap<String, Boolean> seen = new IdentityHashMap<>();
+		long unshared = 0; // Bytes of the Strings if no course shared one
+		long shared = 0; // Bytes of the distinct String objects
+		for (Course c : courses) {
+			String[] fields = { c.getCourseID(), c.getTitle(), c.getTeacher(), c.meetingTimes(), c.location() };
+			for (String s : fields) {
+				long bytes = sizeOf(s);
+				unshared += bytes;
+				if (s != null && seen.put(s, Boolean.TRUE) == null) {
+					shared += bytes;
+				}
+			}
+		}
+		long objects = (long) courses.size() * COURSE_BYTES;
+		long before = objects + unshared;
+		long after = objects + shared;
+		System.out.println("*** Heap footprint (estimated) ***");
+		System.out.println("Course objects:         " + objects + " bytes");
+		System.out.println("Strings, one per field: " + unshared + " bytes");
+		System.out.println("Strings, pooled:        " + shared + " bytes (" + seen.size() + " distinct)");
+		System.out.printf("Saved:                  %d bytes, %.1f%% of %d%n", before - after,
+				before == 0 ? 0.0 : 100.0 * (before - after) / before, before);
+	}
+
+	/**
+	 * Helper method for printFootprintReport Estimates the heap taken by a
+	 * String and its array, one byte per char when every char fits in Latin-1
+	 */
+	private static long sizeOf(String s) {
+		if (s == null) {
+			return 0;
+		}
+		int perChar = 1;
+		for (int i = 0; i < s.length(); i++) {
+			if (s.charAt(i) > 0xff) {
+				perChar = 2;
+				break;
+			}
+		}
+		long array = (ARRAY_BYTES + (long) s.length() * perChar + 7) / 8 * 8; // Rounded to 8 bytes
+		return STRING_BYTES + array;
+	}
+}
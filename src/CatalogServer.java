@@ -0,0 +1,495 @@
+/**
+ * CatalogServer.java
+ * CIS 22C, Course Project
+ * Serves catalog queries and changes over HTTP on localhost, as JSON:
+ *   GET    /courses/{crn}                  the course with a CRN
+ *   GET    /courses?title=...              every section with a title
+ *   GET    /courses?from=lo&to=hi&limit=n  courses by CRN from lo to hi
+ *   POST   /courses                        add a course from form fields crn,
+ *                                          title, instructor, size, units,
+ *                                          times and location
+ *   DELETE /courses/{crn}                  delete the course with a CRN
+ * Each request runs on its own virtual thread when the JVM has them (Java 21
+ * and later) and on a cached thread pool otherwise. CRN lookups take no
+ * lock, other reads share the catalog's read lock, and changes are synced to
+ * the journal before the response, with concurrent changes sharing one sync.
+ *
+ * java CatalogServer dataFile [port] runs the server until stdin closes.
+ * java CatalogServer -check dataFile runs a load test against a copy of the
+ * data file, its snapshot and its journal in a temporary directory, so the
+ * adds and deletes it sends leave the originals as they were, and checks the
+ * results against LATENCY_TARGET_MS and THROUGHPUT_TARGET.
+ */
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CatalogServer {
+
+	public static final int DEFAULT_PORT = 8022;
+	private static final int DEFAULT_LIMIT = 100; // Courses per range listing unless asked otherwise
+	private static final int MAX_LIMIT = 1000;
+
+	// What -check requires, with the clients in the same JVM as the server, so
+	// even a single-core machine can meet it
+	public static final double LATENCY_TARGET_MS = 20.0; // 99th percentile of CRN lookups
+	public static final double THROUGHPUT_TARGET = 1000; // Requests per second over the whole mix
+	private static final int CHECK_CLIENTS = 4;
+	private static final int CHECK_REQUESTS = 20000;
+	private static final int CHECK_WARMUP = 5000; // Requests sent before measuring, while the JIT compiles
+
+	static {
+		// Without this the JDK server leaves Nagle's algorithm on, and small
+		// responses wait for a delayed ACK, about 40 ms each
+		if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+			System.setProperty("sun.net.httpserver.nodelay", "true");
+		}
+	}
+
+	private final CourseCatalog catalog;
+	private final HttpServer server;
+	private final ExecutorService executor;
+
+	/**
+	 * Creates a server for a catalog on localhost. Call start to accept
+	 * requests
+	 *
+	 * @param catalog the catalog to serve
+	 * @param port the port, 0 for any free one
+	 * @throws IOException when the port cannot be opened
+	 */
+	public CatalogServer(CourseCatalog catalog, int port) throws IOException {
+		this.catalog = catalog;
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 128);
+		server.createContext("/courses", this::handle);
+		executor = newRequestExecutor();
+		server.setExecutor(executor);
+	}
+
+	/**
+	 * Returns an executor that starts a virtual thread per task, or a cached
+	 * thread pool on JVMs without virtual threads. Looked up by reflection so
+	 * the class still compiles and runs on Java 17
+	 */
+	static ExecutorService newRequestExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return Executors.newCachedThreadPool(r -> {
+				Thread t = new Thread(r, "catalog-http");
+				t.setDaemon(true);
+				return t;
+			});
+		}
+	}
+
+	public void start() {
+		server.start();
+	}
+
+	/**
+	 * Stops accepting requests, waits briefly for those in progress and stops
+	 * the request threads. The catalog stays open
+	 */
+	public void stop() {
+		server.stop(1);
+		executor.shutdown();
+	}
+
+	/**
+	 * Returns the port the server listens on
+	 */
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	/*** REQUESTS ***/
+
+	/**
+	 * Routes one request and sends its response
+	 *
+	 * @param exchange the request and response
+	 * @throws IOException when the response cannot be sent
+	 */
+	private void handle(HttpExchange exchange) throws IOException {
+		try {
+			String path = exchange.getRequestURI().getPath(); // Percent-decoded, but a + stays a +
+			String crn = path.startsWith("/courses/") ? path.substring("/courses/".length()) : null;
+			boolean collection = path.equals("/courses") || path.equals("/courses/");
+			String method = exchange.getRequestMethod();
+
+			if (method.equals("GET") && crn != null && !crn.isEmpty()) {
+				Course c = catalog.getCourse(crn);
+				if (c == null) {
+					send(exchange, 404, error("not found"));
+				} else {
+					send(exchange, 200, json(c));
+				}
+			} else if (method.equals("GET") && collection) {
+				list(exchange, parseForm(exchange.getRequestURI().getRawQuery()));
+			} else if (method.equals("POST") && collection) {
+				add(exchange, parseForm(readBody(exchange)));
+			} else if (method.equals("DELETE") && crn != null && !crn.isEmpty()) {
+				if (catalog.deleteCourse(crn)) {
+					catalog.commit();
+					send(exchange, 200, "{\"ok\":true}");
+				} else {
+					send(exchange, 404, error("not found"));
+				}
+			} else {
+				send(exchange, 405, error("unsupported request"));
+			}
+		} catch (RuntimeException e) { // Keep the server up, report the request as failed
+			send(exchange, 500, error(String.valueOf(e)));
+		} finally {
+			exchange.close();
+		}
+	}
+
+	/**
+	 * Answers GET /courses, by title or by CRN range
+	 */
+	private void list(HttpExchange exchange, HashMap<String, String> query) throws IOException {
+		ArrayList<Course> found;
+		if (query.containsKey("title")) {
+			found = catalog.findByTitle(query.get("title"));
+		} else if (query.containsKey("from") && query.containsKey("to")) {
+			int limit;
+			try {
+				limit = Math.min(MAX_LIMIT, Integer.parseInt(query.getOrDefault("limit", "" + DEFAULT_LIMIT)));
+			} catch (NumberFormatException e) {
+				send(exchange, 400, error("limit must be a number"));
+				return;
+			}
+			found = catalog.listByCRN(query.get("from"), query.get("to"), Math.max(0, limit));
+		} else {
+			send(exchange, 400, error("expected title, or from and to"));
+			return;
+		}
+		StringBuilder body = new StringBuilder("{\"ok\":true,\"courses\":[");
+		for (int i = 0; i < found.size(); i++) {
+			if (i > 0) {
+				body.append(',');
+			}
+			found.get(i).writeJson(body);
+		}
+		send(exchange, 200, body.append("]}").toString());
+	}
+
+	/**
+	 * Answers POST /courses
+	 */
+	private void add(HttpExchange exchange, HashMap<String, String> form) throws IOException {
+		String[] fields = { "crn", "title", "instructor", "size", "units", "times", "location" };
+		StringBuilder line = new StringBuilder();
+		for (String f : fields) {
+			String value = form.get(f);
+			if (value == null || value.indexOf('|') != -1) {
+				send(exchange, 400, error("missing or invalid field " + f));
+				return;
+			}
+			line.append(line.length() == 0 ? "" : "|").append(value);
+		}
+		Course c;
+		try {
+			c = CatalogBatch.parseCourse(line.toString());
+		} catch (IllegalArgumentException e) {
+			send(exchange, 400, error(e.getMessage()));
+			return;
+		}
+		if (!catalog.addCourse(c)) {
+			send(exchange, 409, error("CRN is not a number or already listed"));
+			return;
+		}
+		catalog.commit();
+		send(exchange, 201, json(c));
+	}
+
+	private static String json(Course c) throws IOException {
+		StringBuilder s = new StringBuilder("{\"ok\":true,\"course\":");
+		c.writeJson(s);
+		return s.append('}').toString();
+	}
+
+	private static String error(String message) throws IOException {
+		StringBuilder s = new StringBuilder("{\"ok\":false,\"error\":");
+		Json.string(s, message);
+		return s.append('}').toString();
+	}
+
+	private static void send(HttpExchange exchange, int status, String body) throws IOException {
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+		exchange.sendResponseHeaders(status, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+
+	private static String readBody(HttpExchange exchange) throws IOException {
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		try (InputStream in = exchange.getRequestBody()) {
+			in.transferTo(body);
+		}
+		return body.toString(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Parses name=value pairs joined by &, as in a query string or a form body
+	 */
+	private static HashMap<String, String> parseForm(String form) {
+		HashMap<String, String> values = new HashMap<>();
+		if (form == null || form.isEmpty()) {
+			return values;
+		}
+		for (String pair : form.split("&")) {
+			int eq = pair.indexOf('=');
+			if (eq > 0) {
+				values.put(decode(pair.substring(0, eq)), decode(pair.substring(eq + 1)));
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * Decodes a form value, where a + stands for a space. Paths are decoded by
+	 * URI instead, where it does not
+	 */
+	private static String decode(String s) {
+		return URLDecoder.decode(s, StandardCharsets.UTF_8);
+	}
+
+	/*** COMMAND LINE ***/
+
+	/**
+	 * Runs the server, or its load check with -check
+	 *
+	 * @param arg dataFile [port], or -check dataFile
+	 */
+	public static void main(String[] arg) {
+		if (arg.length < 1 || (arg[0].equals("-check") && arg.length < 2)) {
+			System.out.println("Usage: java CatalogServer dataFile [port] | -check dataFile");
+			return;
+		}
+		boolean check = arg[0].equals("-check");
+		CourseCatalog catalog = null;
+		Path checkDir = null;
+		int status = 0;
+		try {
+			String fileName = arg[check ? 1 : 0];
+			if (check) {
+				checkDir = Files.createTempDirectory("catalog-check");
+				fileName = copyForCheck(fileName, checkDir);
+			}
+			catalog = CourseCatalog.open(fileName);
+			int port = (!check && arg.length > 1) ? Integer.parseInt(arg[1]) : (check ? 0 : DEFAULT_PORT);
+			CatalogServer server = new CatalogServer(catalog, port);
+			server.start();
+			if (check) {
+				status = server.check() ? 0 : 3;
+			} else {
+				System.out.println("Serving on http://localhost:" + server.getPort() + "/courses, close stdin to stop");
+				System.in.transferTo(OutputStream.nullOutputStream());
+			}
+			server.stop();
+		} catch (IOException | NumberFormatException | InterruptedException e) {
+			System.out.println(e);
+			status = 1;
+		}
+		if (catalog != null) {
+			catalog.close();
+		}
+		if (checkDir != null) {
+			deleteCheckCopy(checkDir);
+		}
+		System.exit(status);
+	}
+
+	/**
+	 * Helper method for main Copies a data file with its snapshot and journal
+	 * segments, whichever exist, into a directory
+	 *
+	 * @param fileName name of the data file without an extension
+	 * @param dir where to copy them
+	 * @return the name of the copy without an extension, to open instead
+	 * @throws IOException when a file cannot be copied
+	 */
+	private static String copyForCheck(String fileName, Path dir) throws IOException {
+		Path base = Paths.get(fileName).toAbsolutePath();
+		String name = base.getFileName().toString();
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(base.getParent(),
+				name + "{.txt,.snap,.*.journal}")) {
+			for (Path p : files) {
+				Files.copy(p, dir.resolve(p.getFileName()));
+			}
+		}
+		return dir.resolve(name).toString();
+	}
+
+	/**
+	 * Helper method for main Deletes the copy the check ran against
+	 *
+	 * @param dir the directory copyForCheck copied into
+	 */
+	private static void deleteCheckCopy(Path dir) {
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+			for (Path p : files) {
+				Files.delete(p);
+			}
+			Files.delete(dir);
+		} catch (IOException e) {
+			System.out.println("Could not delete " + dir + ": " + e);
+		}
+	}
+
+	/**
+	 * Sends CHECK_WARMUP unmeasured requests and then CHECK_REQUESTS measured
+	 * ones from CHECK_CLIENTS threads: 80% CRN
+	 * lookups of listed courses, 10% title searches, 5% range listings and 5%
+	 * adds followed by deletes of the course added. Prints the latencies and
+	 * throughput and compares them with the targets
+	 *
+	 * @return whether both targets were met and no request failed
+	 * @throws InterruptedException when interrupted while waiting for clients
+	 */
+	private boolean check() throws InterruptedException {
+		ArrayList<Course> sample = catalog.listByCRN("0", "999999999", MAX_LIMIT);
+		if (sample.isEmpty()) {
+			System.out.println("check: the catalog is empty");
+			return false;
+		}
+		HttpClient client = HttpClient.newBuilder().executor(Executors.newFixedThreadPool(CHECK_CLIENTS)).build();
+		String base = "http://localhost:" + getPort() + "/courses";
+		AtomicInteger added = new AtomicInteger();
+		runClients(client, base, sample, CHECK_WARMUP, new long[CHECK_WARMUP], new AtomicInteger(), added);
+
+		long[] lookupNanos = new long[CHECK_REQUESTS];
+		AtomicInteger lookups = new AtomicInteger();
+		added.set(0);
+		long start = System.nanoTime();
+		int failures = runClients(client, base, sample, CHECK_REQUESTS, lookupNanos, lookups, added);
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		long[] sorted = Arrays.copyOf(lookupNanos, lookups.get());
+		Arrays.sort(sorted);
+		double p50 = percentile(sorted, 0.50), p99 = percentile(sorted, 0.99);
+		double throughput = (CHECK_REQUESTS + added.get()) / seconds; // Each add also sends a delete
+		System.out.printf("%d requests from %d clients in %.2f s: %.0f requests/s (target %.0f)%n",
+				CHECK_REQUESTS + added.get(), CHECK_CLIENTS, seconds, throughput, THROUGHPUT_TARGET);
+		System.out.printf("CRN lookups: p50 %.2f ms, p99 %.2f ms (target %.1f ms), failures: %d%n", p50, p99,
+				LATENCY_TARGET_MS, failures);
+		boolean passed = failures == 0 && p99 <= LATENCY_TARGET_MS && throughput >= THROUGHPUT_TARGET;
+		System.out.println(passed ? "PASS" : "FAIL");
+		return passed;
+	}
+
+	/**
+	 * Helper method for check Sends requests from CHECK_CLIENTS threads until
+	 * count have been sent
+	 *
+	 * @param client the client to send with
+	 * @param base the URL of /courses
+	 * @param sample listed courses to look up
+	 * @param count how many requests to send
+	 * @param lookupNanos receives the time of each CRN lookup
+	 * @param lookups counts the CRN lookups
+	 * @param added counts the courses added, each of which is also deleted
+	 * @return the number of requests that failed
+	 * @throws InterruptedException when interrupted while waiting for clients
+	 */
+	private static int runClients(HttpClient client, String base, ArrayList<Course> sample, int count,
+			long[] lookupNanos, AtomicInteger lookups, AtomicInteger added) throws InterruptedException {
+		AtomicInteger next = new AtomicInteger();
+		AtomicInteger failures = new AtomicInteger();
+
+		Runnable clientLoop = () -> {
+			ThreadLocalRandom random = ThreadLocalRandom.current();
+			while (next.getAndIncrement() < count) {
+				Course c = sample.get(random.nextInt(sample.size()));
+				int kind = random.nextInt(100);
+				try {
+					if (kind < 80) {
+						long start = System.nanoTime();
+						boolean ok = request(client, HttpRequest.newBuilder(URI.create(base + "/" + c.getCourseID())).GET(), 200);
+						lookupNanos[lookups.getAndIncrement()] = System.nanoTime() - start;
+						countFailure(ok, failures);
+					} else if (kind < 90) {
+						String title = URLEncoder.encode(c.getTitle(), StandardCharsets.UTF_8);
+						countFailure(request(client, HttpRequest.newBuilder(URI.create(base + "?title=" + title)).GET(), 200), failures);
+					} else if (kind < 95) {
+						String range = "?from=" + c.getCourseID() + "&to=999999999&limit=20";
+						countFailure(request(client, HttpRequest.newBuilder(URI.create(base + range)).GET(), 200), failures);
+					} else {
+						String crn = Integer.toString(900000000 + added.getAndIncrement());
+						String form = "crn=" + crn + "&title=CHECK+1&instructor=None&size=1&units=1&times=TBA&location=TBA";
+						countFailure(request(client, HttpRequest.newBuilder(URI.create(base))
+								.header("Content-Type", "application/x-www-form-urlencoded")
+								.POST(HttpRequest.BodyPublishers.ofString(form)), 201), failures);
+						countFailure(request(client, HttpRequest.newBuilder(URI.create(base + "/" + crn)).DELETE(), 200), failures);
+					}
+				} catch (IOException e) {
+					failures.incrementAndGet();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		};
+
+		Thread[] clients = new Thread[CHECK_CLIENTS];
+		for (int i = 0; i < clients.length; i++) {
+			clients[i] = new Thread(clientLoop, "check-client-" + i);
+			clients[i].start();
+		}
+		for (Thread t : clients) {
+			t.join();
+		}
+		return failures.get();
+	}
+
+	private static boolean request(HttpClient client, HttpRequest.Builder request, int expected)
+			throws IOException, InterruptedException {
+		HttpResponse<String> response = client.send(request.timeout(Duration.ofSeconds(10)).build(),
+				HttpResponse.BodyHandlers.ofString());
+		return response.statusCode() == expected;
+	}
+
+	private static void countFailure(boolean ok, AtomicInteger failures) {
+		if (!ok) {
+			failures.incrementAndGet();
+		}
+	}
+
+	private static double percentile(long[] sortedNanos, double p) {
+		if (sortedNanos.length == 0) {
+			return 0;
+		}
+		int i = (int) Math.min(sortedNanos.length - 1, Math.ceil(p * sortedNanos.length) - 1);
+		return sortedNanos[Math.max(0, i)] / 1e6;
+	}
+}
@@ -0,0 +1,337 @@
+/**
+ * CatalogSnapshot.java
+ * CIS 22C, Course Project
+ * Binary copy of a catalog that loads without parsing text. The file holds
+ * every distinct String once, the courses as fixed-width records in CRN
+ * order, and the title order as a list of record numbers, so both BSTs can be
+ * bulk built without sorting.
+ *
+ * Layout (big-endian):
+ *   int magic, int version, long sequence number of the last journal record
+ *       the snapshot holds (0 for none)
+ *   int string count, then per string: int byte length, UTF-8 bytes
+ *   int course count, then per course: int CRN, title, instructor, times and
+ *       location string numbers, int class size, int units
+ *   int record number of each course in title order
+ *   long CRC32 of everything before it
+ */
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.IdentityHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+public class CatalogSnapshot {
+
+	private static final int MAGIC = 0x43435331; // "CCS1"
+	private static final int VERSION = 2;
+	private static final int RECORD_FIELDS = 7; // Ints per course record
+	private static final Object WRITE_LOCK = new Object(); // Held by every write of a snapshot file
+	private static final AtomicLong TEMP_NAMES = new AtomicLong(); // Numbers the temporary files
+
+	private final Course[] byCRN; // Courses in bstCRN order
+	private final Course[] byTitle; // The same courses in bstTitle order
+	private final long sequence; // Last CatalogJournal record included
+
+	/**
+	 * Creates a snapshot of the courses in two trees holding the same courses
+	 *
+	 * @param bstCRN the courses ordered by CRN
+	 * @param bstTitle the same courses ordered by title
+	 * @param sequence the last journal record the trees include, 0 for none
+	 * @precondition both trees hold the same Course objects
+	 */
+	public CatalogSnapshot(BST<Course> bstCRN, BST<Course> bstTitle, long sequence) {
+		byCRN = bstCRN.slice(0, bstCRN.getSize()).toArray(new Course[0]);
+		byTitle = bstTitle.slice(0, bstTitle.getSize()).toArray(new Course[0]);
+		this.sequence = sequence;
+	}
+
+	private CatalogSnapshot(Course[] byCRN, Course[] byTitle, long sequence) {
+		this.byCRN = byCRN;
+		this.byTitle = byTitle;
+		this.sequence = sequence;
+	}
+
+	/**
+	 * Returns the courses in CRN order, ready for BST.buildFrom
+	 */
+	public Course[] byCRN() {
+		return byCRN;
+	}
+
+	/**
+	 * Returns the courses in title order, ready for BST.buildFrom
+	 */
+	public Course[] byTitle() {
+		return byTitle;
+	}
+
+	/**
+	 * Returns the last journal record the snapshot includes, 0 for none
+	 */
+	public long sequence() {
+		return sequence;
+	}
+
+	/**
+	 * Returns the path of the snapshot that belongs to a data file
+	 *
+	 * @param fileName name of the data file without the .txt extension
+	 */
+	public static Path pathOf(String fileName) {
+		return Paths.get(fileName + ".snap");
+	}
+
+	/**
+	 * Determines whether a data file has a snapshot
+	 *
+	 * @param fileName name of the data file without the .txt extension
+	 * @return whether fileName.snap exists
+	 */
+	public static boolean exists(String fileName) {
+		return Files.isRegularFile(pathOf(fileName));
+	}
+
+	/**
+	 * Determines whether a data file has a snapshot that is at least as new as
+	 * its .txt file, i.e. the .txt file was not changed after the snapshot was
+	 * written
+	 *
+	 * @param fileName name of the data file without the .txt extension
+	 * @return whether the snapshot is the newer of the two
+	 */
+	public static boolean isCurrent(String fileName) {
+		Path snap = pathOf(fileName);
+		Path txt = Paths.get(fileName + ".txt");
+		try {
+			return Files.isRegularFile(snap)
+					&& (!Files.exists(txt) || Files.getLastModifiedTime(snap).compareTo(Files.getLastModifiedTime(txt)) >= 0);
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Writes the snapshot to fileName.snap, unless the snapshot already there
+	 * holds later journal records, such as one a compaction wrote while this
+	 * one waited. The file is written under a temporary name of its own,
+	 * forced to disk and then moved, so a reader never sees half a snapshot
+	 * and the journal it replaces can be deleted right after
+	 *
+	 * @param fileName name of the data file without an extension
+	 * @return false if the snapshot on disk is newer, which is then kept
+	 * @throws IOException when the file cannot be written
+	 */
+	public boolean write(String fileName) throws IOException {
+		return write(fileName, false);
+	}
+
+	/**
+	 * Writes the snapshot to fileName.snap whatever the snapshot there holds.
+	 * For a save that also discards the journal of fileName, whose sequence
+	 * numbers the old snapshot counted
+	 *
+	 * @param fileName name of the data file without an extension
+	 * @throws IOException when the file cannot be written
+	 */
+	public void replace(String fileName) throws IOException {
+		write(fileName, true);
+	}
+
+	/**
+	 * Helper method for write and replace. Snapshots are written one at a
+	 * time, so the check of the one on disk and the move that replaces it
+	 * are never split by another write
+	 *
+	 * @param fileName name of the data file without an extension
+	 * @param replaceNewer whether to write even if the snapshot on disk holds
+	 *                     later journal records
+	 * @return whether the file was written
+	 * @throws IOException when the file cannot be written
+	 */
+	private boolean write(String fileName, boolean replaceNewer) throws IOException {
+		StringPool strings = new StringPool(); // The string table, numbered in the order written
+		int[] records = new int[byCRN.length * RECORD_FIELDS];
+		IdentityHashMap<Course, Integer> recordOf = new IdentityHashMap<>(byCRN.length * 2);
+
+		for (int i = 0; i < byCRN.length; i++) {
+			Course c = byCRN[i];
+			int r = i * RECORD_FIELDS;
+			records[r] = strings.idOf(c.getCourseID());
+			records[r + 1] = strings.idOf(c.getTitle());
+			records[r + 2] = strings.idOf(c.getTeacher());
+			records[r + 3] = strings.idOf(c.meetingTimes());
+			records[r + 4] = strings.idOf(c.location());
+			records[r + 5] = c.getCourseSize();
+			records[r + 6] = c.getUnits();
+			recordOf.put(c, i);
+		}
+
+		synchronized (WRITE_LOCK) {
+			Path path = pathOf(fileName);
+			if (!replaceNewer && sequenceOf(path) > sequence) {
+				// Still the newest copy of the catalog, so newer than the .txt file just written
+				Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+				return false;
+			}
+			Path temp = createTemp(fileName);
+			try {
+				try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+					OutputStream file = Channels.newOutputStream(channel);
+					CRC32 crc = new CRC32();
+					DataOutputStream out = new DataOutputStream(
+							new CheckedOutputStream(new BufferedOutputStream(file, 1 << 16), crc));
+					out.writeInt(MAGIC);
+					out.writeInt(VERSION);
+					out.writeLong(sequence);
+					out.writeInt(strings.size());
+					for (int id = 0; id < strings.size(); id++) {
+						byte[] bytes = strings.valueOf(id).getBytes(StandardCharsets.UTF_8);
+						out.writeInt(bytes.length);
+						out.write(bytes);
+					}
+					out.writeInt(byCRN.length);
+					for (int value : records) {
+						out.writeInt(value);
+					}
+					for (Course c : byTitle) {
+						out.writeInt(recordOf.get(c));
+					}
+					out.flush();
+					new DataOutputStream(file).writeLong(crc.getValue()); // Not part of its own checksum
+					channel.force(false);
+				}
+				Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (IOException e) {
+				Files.deleteIfExists(temp);
+				throw e;
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Helper method for write Creates an empty temporary file next to
+	 * fileName.snap with a name no other write is using
+	 *
+	 * @param fileName name of the data file without an extension
+	 * @return the path of the file created
+	 * @throws IOException when the file cannot be created
+	 */
+	private static Path createTemp(String fileName) throws IOException {
+		while (true) {
+			Path temp = Paths.get(fileName + ".snap." + TEMP_NAMES.incrementAndGet() + ".tmp");
+			try {
+				return Files.createFile(temp);
+			} catch (FileAlreadyExistsException e) { // Left by another process or a crash, try the next name
+			}
+		}
+	}
+
+	/**
+	 * Helper method for write Returns the journal sequence number in the
+	 * header of a snapshot file
+	 *
+	 * @param path the snapshot file
+	 * @return the sequence number, or -1 if there is no snapshot of this
+	 *         version there
+	 */
+	private static long sequenceOf(Path path) {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			ByteBuffer header = ByteBuffer.allocate(16);
+			while (header.hasRemaining() && channel.read(header) >= 0) {
+			}
+			if (!header.hasRemaining() && header.getInt(0) == MAGIC && header.getInt(4) == VERSION) {
+				return header.getLong(8);
+			}
+		} catch (IOException e) { // Missing or unreadable, either way nothing worth keeping
+		}
+		return -1;
+	}
+
+	/**
+	 * Reads the snapshot in fileName.snap
+	 *
+	 * @param fileName name of the data file without an extension
+	 * @return the snapshot
+	 * @throws IOException when the file cannot be read, is not a snapshot of
+	 *                     this version, or fails its checksum
+	 */
+	public static CatalogSnapshot read(String fileName) throws IOException {
+		try (FileChannel channel = FileChannel.open(pathOf(fileName), StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size < 24 || size > Integer.MAX_VALUE) {
+				throw new IOException("read: " + fileName + ".snap is not a snapshot.");
+			}
+			ByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			int end = (int) size - Long.BYTES;
+			if (buf.getInt(0) != MAGIC || buf.getInt(4) != VERSION) {
+				throw new IOException("read: " + fileName + ".snap is not a version " + VERSION + " snapshot.");
+			}
+			CRC32 crc = new CRC32();
+			crc.update(buf.duplicate().limit(end));
+			if (crc.getValue() != buf.getLong(end)) {
+				throw new IOException("read: " + fileName + ".snap failed its checksum.");
+			}
+			try {
+				return decode(buf.getLong(8), buf.limit(end).position(16));
+			} catch (RuntimeException e) { // A checksum match makes this unlikely
+				throw new IOException("read: " + fileName + ".snap is malformed.", e);
+			}
+		}
+	}
+
+	/**
+	 * Helper method for read Decodes the string table, records and title
+	 * order that follow the header
+	 *
+	 * @param sequence the journal sequence number from the header
+	 * @param buf the snapshot, positioned after the header
+	 * @return the snapshot
+	 */
+	private static CatalogSnapshot decode(long sequence, ByteBuffer buf) {
+		String[] strings = new String[buf.getInt()];
+		byte[] scratch = new byte[256];
+		for (int i = 0; i < strings.length; i++) {
+			int length = buf.getInt();
+			if (length > scratch.length) {
+				scratch = new byte[Math.max(length, scratch.length * 2)];
+			}
+			buf.get(scratch, 0, length);
+			strings[i] = new String(scratch, 0, length, StandardCharsets.UTF_8);
+		}
+
+		Course[] byCRN = new Course[buf.getInt()];
+		for (int i = 0; i < byCRN.length; i++) {
+			String courseID = strings[buf.getInt()];
+			String title = strings[buf.getInt()];
+			String instructor = strings[buf.getInt()];
+			String schedule = strings[buf.getInt()];
+			String location = strings[buf.getInt()];
+			int size = buf.getInt();
+			int units = buf.getInt();
+			byCRN[i] = new Course(courseID, title, instructor, size, units, schedule, location);
+		}
+		Course[] byTitle = new Course[byCRN.length];
+		for (int i = 0; i < byTitle.length; i++) {
+			byTitle[i] = byCRN[buf.getInt()];
+		}
+		return new CatalogSnapshot(byCRN, byTitle, sequence);
+	}
+}
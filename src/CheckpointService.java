@@ -0,0 +1,137 @@
+/**
+ * CheckpointService.java
+ * CIS 22C, Course Project
+ * Writes catalog files from a background thread. A save copies the
+ * references it needs from the catalog right away and writes the .txt and
+ * .snap files later, so the thread that asked for the save can go on using
+ * the catalog. Periodic tasks such as journal compaction run on the same
+ * thread.
+ */
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+public class CheckpointService {
+
+	/**
+	 * Consistent copy of a catalog, holding references to its courses but not
+	 * to the indexes, which can go on changing
+	 */
+	public static class Checkpoint {
+		private final Course[] listing; // Courses in the order the .txt file lists them
+		private final CatalogSnapshot snapshot;
+		private final boolean discardJournal; // Whether the file's own journal is out of date once written
+
+		/**
+		 * @param listing the courses in the order to write them to the .txt file
+		 * @param snapshot the same courses for the .snap file
+		 * @param discardJournal whether any journal of the file being written
+		 *                       describes data the checkpoint replaces
+		 */
+		public Checkpoint(Course[] listing, CatalogSnapshot snapshot, boolean discardJournal) {
+			this.listing = listing;
+			this.snapshot = snapshot;
+			this.discardJournal = discardJournal;
+		}
+	}
+
+	private final ScheduledExecutorService executor;
+	private final Function<String, Checkpoint> capture;
+
+	/**
+	 * Creates the service and its background thread
+	 *
+	 * @param capture takes a Checkpoint of the catalog for the named file,
+	 *                called on the thread that asks for the save
+	 */
+	public CheckpointService(Function<String, Checkpoint> capture) {
+		this.capture = capture;
+		ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> {
+			Thread t = new Thread(r, "checkpoint");
+			t.setDaemon(true);
+			return t;
+		});
+		executor.setContinueExistingPeriodicTasksAfterShutdownPolicy(false);
+		this.executor = executor;
+	}
+
+	/**
+	 * Takes a checkpoint now and writes it to fileName.txt and fileName.snap in
+	 * the background. Saves are written one at a time, in the order asked for
+	 *
+	 * @param fileName name of the file without an extension
+	 * @return the pending write, done when both files are on disk
+	 */
+	public Future<?> save(String fileName) {
+		Checkpoint checkpoint = capture.apply(fileName);
+		return executor.submit(() -> {
+			try {
+				write(checkpoint, fileName);
+			} catch (IOException e) {
+				System.out.println("Could not write " + fileName + ": " + e);
+			}
+		});
+	}
+
+	/**
+	 * Runs a task in the background every period, starting one period from now
+	 *
+	 * @param task the task, which must take any locks it needs itself
+	 * @param period time between runs
+	 * @param unit the unit of period
+	 */
+	public void schedule(Runnable task, long period, TimeUnit unit) {
+		executor.scheduleWithFixedDelay(task, period, period, unit);
+	}
+
+	/**
+	 * Stops the scheduled tasks and waits for the saves already asked for
+	 */
+	public void close() {
+		executor.shutdown();
+		try {
+			executor.awaitTermination(1, TimeUnit.MINUTES);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Writes a checkpoint as a .txt file in the style of ClassData.txt, then as
+	 * a .snap file, which makes the snapshot the newer of the two. A save to
+	 * the catalog's own file keeps a .snap that a journal compaction wrote
+	 * after the checkpoint was taken, since it holds later changes; a save to
+	 * any other file replaces its .snap and journal outright
+	 *
+	 * @param checkpoint the catalog to write
+	 * @param fileName name of the file without an extension
+	 * @throws IOException when a file cannot be written
+	 */
+	static void write(Checkpoint checkpoint, String fileName) throws IOException {
+		try (BufferedWriter print = Files.newBufferedWriter(Paths.get(fileName + ".txt"), StandardCharsets.UTF_8)) {
+			String newLine = System.lineSeparator();
+			print.append( // Print header
+					"Stanford ExploreCourses 2019-2020 (" + fileName + ".txt) \n" + checkpoint.listing.length
+							+ " courses listed\n").append(newLine);
+			for (Course c : checkpoint.listing) { // Streams each course, memory use does not grow with the catalog
+				c.writeTo(print);
+				print.append('\n');
+			}
+			print.append(newLine);
+		}
+		if (checkpoint.discardJournal) {
+			checkpoint.snapshot.replace(fileName);
+			CatalogJournal.discard(fileName);
+		} else {
+			checkpoint.snapshot.write(fileName);
+		}
+	}
+}
@@ -0,0 +1,428 @@
+/**
+ * ConcurrentHash.java
+ * CIS 22C, Course Project
+ * Thread-safe counterpart of Hash. Each bucket holds an immutable array that
+ * is replaced, never changed, so searches read without locking and without
+ * touching shared state. Writers lock only the stripe that owns the bucket,
+ * so writes to different stripes run in parallel. The table doubles once the
+ * keys in all of it pass the load factor.
+ */
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class ConcurrentHash<T extends Comparable<T>> implements Iterable<T>, Writable {
+
+	private static final int STRIPES = 64; // Power of two; Table sizes are always a multiple
+	private static final double MAX_LOAD_FACTOR = 0.75;
+
+	private volatile AtomicReferenceArray<Object[]> Table; // null bucket means empty
+	private final ReentrantLock[] locks;
+	private final AtomicInteger numElements = new AtomicInteger();
+	private final HashStrategy<? super T> strategy;
+
+	/**
+	 * Default constructor for ConcurrentHash, hashing keys with their hashCode
+	 * method
+	 */
+	public ConcurrentHash() {
+		this(STRIPES, HashStrategy.hashCodeOf());
+	}
+
+	/**
+	 * Constructor for ConcurrentHash with a starting size and a custom hash
+	 * strategy
+	 *
+	 * @param size the number of buckets to start with, rounded up to a power of
+	 *             two no smaller than the number of stripes
+	 * @param strategy how to compute the hash code of a key
+	 */
+	public ConcurrentHash(int size, HashStrategy<? super T> strategy) {
+		Table = new AtomicReferenceArray<>(capacityFor(size));
+		locks = new ReentrantLock[STRIPES];
+		for (int i = 0; i < STRIPES; i++) {
+			locks[i] = new ReentrantLock();
+		}
+		this.strategy = strategy;
+	}
+
+	/** Accessors */
+
+	/**
+	 * Returns the hash code of a key with its bits spread. Both the bucket and
+	 * the stripe are taken from the low bits of it, so keys whose hash codes
+	 * only differ in the high bits still spread over every stripe
+	 *
+	 * @param t the key
+	 * @return the mixed hash code
+	 */
+	private int spread(T t) {
+		return HashStrategy.mix(strategy.hash(t));
+	}
+
+	/**
+	 * Returns the bucket index for a mixed hash code
+	 *
+	 * @param h the mixed hash code
+	 * @param size the size of the table being indexed
+	 * @return the index in the table
+	 */
+	private static int bucket(int h, int size) {
+		return h & (size - 1);
+	}
+
+	/**
+	 * Returns the stripe whose lock guards the bucket of a mixed hash code.
+	 * Doubling the table keeps every key in the same stripe, since sizes are
+	 * multiples of STRIPES
+	 *
+	 * @param h the mixed hash code
+	 * @return the stripe index
+	 */
+	private static int stripe(int h) {
+		return h & (STRIPES - 1);
+	}
+
+	/**
+	 * Returns the smallest table size that is a power of two, no smaller than
+	 * STRIPES and no smaller than size
+	 */
+	private static int capacityFor(int size) {
+		int capacity = STRIPES;
+		while (capacity < size) {
+			capacity *= 2;
+		}
+		return capacity;
+	}
+
+	/**
+	 * Returns total number of keys. Under concurrent writes this is a snapshot
+	 * that may already be out of date
+	 *
+	 * @return total number of keys
+	 */
+	public int getNumElements() {
+		return numElements.get();
+	}
+
+	/**
+	 * Searches for a specified key without taking any lock
+	 *
+	 * @param t the key to search for
+	 * @return the first matching key or null if it is not found
+	 */
+	@SuppressWarnings("unchecked")
+	public T search(T t) {
+		AtomicReferenceArray<Object[]> table = Table;
+		Object[] chain = table.get(bucket(spread(t), table.length()));
+		if (chain != null) {
+			for (Object o : chain) {
+				if (t.equals(o)) {
+					return (T) o;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Determines whether a key itself is in the table, as opposed to a key
+	 * equal to it, without taking any lock
+	 *
+	 * @param t the key to look for
+	 * @return whether t is in the table
+	 */
+	public boolean containsInstance(T t) {
+		if (t == null) {
+			return false;
+		}
+		AtomicReferenceArray<Object[]> table = Table;
+		Object[] chain = table.get(bucket(spread(t), table.length()));
+		if (chain != null) {
+			for (Object o : chain) {
+				if (o == t) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/** Mutators */
+
+	/**
+	 * Inserts a new key at the end of its bucket
+	 *
+	 * @param t the key to insert
+	 */
+	public void insert(T t) {
+		if (t == null) {
+			return;
+		}
+		int h = spread(t);
+		ReentrantLock lock = locks[stripe(h)];
+		AtomicReferenceArray<Object[]> table;
+		lock.lock();
+		try {
+			table = Table; // Cannot change while a stripe lock is held
+			int bucket = bucket(h, table.length());
+			Object[] chain = table.get(bucket);
+			Object[] updated;
+			if (chain == null) {
+				updated = new Object[] { t };
+			} else {
+				updated = new Object[chain.length + 1];
+				System.arraycopy(chain, 0, updated, 0, chain.length);
+				updated[chain.length] = t;
+			}
+			table.set(bucket, updated);
+		} finally {
+			lock.unlock();
+		}
+		if (numElements.incrementAndGet() > table.length() * MAX_LOAD_FACTOR) {
+			resize(table.length() * 2);
+		}
+	}
+
+	/**
+	 * Inserts many keys at once. The table is grown up front to the size the
+	 * final number of keys needs, so it is rebuilt at most once
+	 *
+	 * @param keys the keys to insert, null keys are skipped
+	 */
+	public void insertAll(Collection<? extends T> keys) {
+		int size = Table.length();
+		while ((numElements.get() + keys.size()) > size * MAX_LOAD_FACTOR) {
+			size *= 2;
+		}
+		resize(size);
+		for (T t : keys) {
+			insert(t);
+		}
+	}
+
+	/**
+	 * Removes the first key equal to t. Has no effect if t is not in the table
+	 *
+	 * @param t the key to remove
+	 * @return whether a key was removed
+	 */
+	public boolean remove(T t) {
+		return remove(t, false);
+	}
+
+	/**
+	 * Removes a key itself from the table, rather than the first key equal to
+	 * it, e.g. one of several sections listed under the same CRN
+	 *
+	 * @param t the key to remove
+	 * @return whether t was in the table
+	 */
+	public boolean removeInstance(T t) {
+		return remove(t, true);
+	}
+
+	/**
+	 * Helper method for remove and removeInstance
+	 *
+	 * @param t the key to remove
+	 * @param sameInstance whether only t itself matches, not just an equal key
+	 * @return whether a key was removed
+	 */
+	private boolean remove(T t, boolean sameInstance) {
+		if (t == null) {
+			return false;
+		}
+		int h = spread(t);
+		ReentrantLock lock = locks[stripe(h)];
+		lock.lock();
+		try {
+			AtomicReferenceArray<Object[]> table = Table;
+			int bucket = bucket(h, table.length());
+			Object[] chain = table.get(bucket);
+			int i = indexIn(chain, t, sameInstance);
+			if (i == -1) {
+				return false;
+			}
+			Object[] updated = null;
+			if (chain.length > 1) {
+				updated = new Object[chain.length - 1];
+				System.arraycopy(chain, 0, updated, 0, i);
+				System.arraycopy(chain, i + 1, updated, i, chain.length - i - 1);
+			}
+			table.set(bucket, updated);
+			numElements.decrementAndGet();
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Puts a key in the place of another with the same hash code in one step,
+	 * so a search running at the same time finds one or the other, never
+	 * neither
+	 *
+	 * @param old the key to replace, compared by identity
+	 * @param updated the key to put in its place
+	 * @precondition old and updated have the same hash code
+	 * @return false if old was not in the table, in which case nothing changed
+	 * @throws IllegalArgumentException when the precondition is violated
+	 */
+	public boolean replace(T old, T updated) throws IllegalArgumentException {
+		int h = spread(old);
+		if (h != spread(updated)) {
+			throw new IllegalArgumentException("replace(): Keys do not have the same hash code.");
+		}
+		ReentrantLock lock = locks[stripe(h)];
+		lock.lock();
+		try {
+			AtomicReferenceArray<Object[]> table = Table;
+			int bucket = bucket(h, table.length());
+			Object[] chain = table.get(bucket);
+			int i = indexIn(chain, old, true);
+			if (i == -1) {
+				return false;
+			}
+			Object[] copy = chain.clone();
+			copy[i] = updated;
+			table.set(bucket, copy);
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the position of a key in a bucket
+	 *
+	 * @param chain the bucket, or null when it is empty
+	 * @param t the key
+	 * @param sameInstance whether only t itself matches, not just an equal key
+	 * @return the position or -1 if the key is not there
+	 */
+	private static int indexIn(Object[] chain, Object t, boolean sameInstance) {
+		if (chain != null) {
+			for (int i = 0; i < chain.length; i++) {
+				if (sameInstance ? chain[i] == t : t.equals(chain[i])) {
+					return i;
+				}
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Grows the table to a size. Takes every stripe lock, in order, so no write
+	 * is lost; searches keep reading the old table until the new one is
+	 * published. Has no effect if the table is already that large, such as
+	 * when another writer grew it first
+	 *
+	 * @param size the number of buckets wanted, a power of two
+	 */
+	private void resize(int size) {
+		for (int i = 0; i < STRIPES; i++) {
+			locks[i].lock();
+		}
+		try {
+			AtomicReferenceArray<Object[]> table = Table;
+			if (table.length() >= size) {
+				return;
+			}
+			AtomicReferenceArray<Object[]> bigger = new AtomicReferenceArray<>(size);
+			for (int i = 0; i < table.length(); i++) {
+				Object[] chain = table.get(i);
+				if (chain == null) {
+					continue;
+				}
+				for (Object o : chain) {
+					@SuppressWarnings("unchecked")
+					int bucket = bucket(spread((T) o), size);
+					Object[] old = bigger.get(bucket);
+					Object[] updated;
+					if (old == null) {
+						updated = new Object[] { o };
+					} else {
+						updated = new Object[old.length + 1];
+						System.arraycopy(old, 0, updated, 0, old.length);
+						updated[old.length] = o;
+					}
+					bigger.set(bucket, updated);
+				}
+			}
+			Table = bigger;
+		} finally {
+			for (int i = STRIPES - 1; i >= 0; i--) {
+				locks[i].unlock();
+			}
+		}
+	}
+
+	/** Additional Methods */
+
+	/**
+	 * Concatenates all keys, bucket by bucket, from a snapshot of the table
+	 */
+	@Override
+	public String toString() {
+		return Writable.toString(this);
+	}
+
+	/**
+	 * Writes every key, one per line and bucket by bucket, without building one
+	 * String for the whole table
+	 *
+	 * @param out where to write
+	 * @throws IOException when out throws it
+	 */
+	@Override
+	public void writeTo(Appendable out) throws IOException {
+		for (T t : this) {
+			Writable.write(t, out);
+			out.append('\n');
+		}
+	}
+
+	/**
+	 * Returns an iterator over the keys, bucket by bucket. It reads the buckets
+	 * without locking, so it never throws ConcurrentModificationException and
+	 * sees each bucket as it was when it got there; remove is not supported
+	 *
+	 * @return an iterator over a snapshot of the table
+	 */
+	@Override
+	public Iterator<T> iterator() {
+		return new Iterator<T>() {
+			private final AtomicReferenceArray<Object[]> table = Table;
+			private int bucket = 0;
+			private Object[] chain;
+			private int offset;
+
+			@Override
+			public boolean hasNext() {
+				while (chain == null || offset == chain.length) {
+					if (bucket == table.length()) {
+						return false;
+					}
+					chain = table.get(bucket++);
+					offset = 0;
+				}
+				return true;
+			}
+
+			@Override
+			@SuppressWarnings("unchecked")
+			public T next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException("next(): No more keys.");
+				}
+				return (T) chain[offset++];
+			}
+		};
+	}
+}
@@ -1,14 +1,21 @@
 
-public class Course implements Comparable<Course>{
+import java.io.IOException;
+import java.util.Objects;
+
+public class Course implements Comparable<Course>, Writable {
+
+	public static final int NO_CRN = -1; // getCRN() of a course whose ID is not a number
 
 	// Private variables
+	private int crn; // courseID parsed once, compared and hashed instead of the String
+	private int meeting; // meetingTimes parsed by MeetingTime, NONE when it could not be
+	private int courseSize;
+	private int units;
 	private String courseID;
 	private String title;
 	private String teacher;
 	private String meetingTimes;
 	private String location;
-	private int courseSize;
-	private int units;
 	
 	/**
      * Constructor for the Course class
@@ -22,10 +29,10 @@ public class Course implements Comparable<Course>{
      */
 	public Course(String CRN, String title, String teacher, int students, int units, String meetingTimes, String location) {
 		// Initialize with values passed in to constructor
-		this.courseID = CRN; // primary key
+		setCourseID(CRN); // primary key
 		this.title = title; // secondary key
 		this.teacher = teacher;
-		this.meetingTimes = meetingTimes;
+		setMeetingTimes(meetingTimes);
 		this.location = location;
 		this.courseSize = students;
 		this.units = units;
@@ -42,6 +49,14 @@ public class Course implements Comparable<Course>{
 		return courseID;
 	}
 	
+	/**
+     * Accesses the course ID (CRN) of the Course as a number
+     * @return the Course's ID, or NO_CRN when the ID is not a number of at most 9 digits
+     */
+	public int getCRN() {
+		return crn;
+	}
+	
 	/**
      * Accesses the title/ name of the Course
      * @return the Course's title
@@ -66,6 +81,14 @@ public class Course implements Comparable<Course>{
 		return meetingTimes;
 	}
 	
+	/**
+     * Accesses the weekly meeting times of the Course as days and minutes
+     * @return the meeting times packed by MeetingTime, or MeetingTime.NONE when they could not be parsed
+     */
+	public int getMeeting() {
+		return meeting;
+	}
+	
 	/**
      * Accesses the location of the Course
      * @return the COurse's location
@@ -100,6 +123,7 @@ public class Course implements Comparable<Course>{
      */
 	public void setCourseID(String CRN) {
 		this.courseID = CRN;
+		this.crn = parseCRN(CRN);
 	}
 	
 	/**
@@ -124,6 +148,7 @@ public class Course implements Comparable<Course>{
      */
 	public void setMeetingTimes(String meetingTimes) {
 		this.meetingTimes = meetingTimes;
+		this.meeting = MeetingTime.parse(meetingTimes);
 	}
 	
 	/**
@@ -163,12 +188,7 @@ public class Course implements Comparable<Course>{
     * Units: <units>
     */
 	@Override public String toString() {
-		// This is more effective way to build strings
-		StringBuilder course = new StringBuilder("CRN: ").append(courseID).append("\nCourse: ").append(title)
-				.append("\nInstructor: ").append(teacher).append("\nClass Size: ").append(courseSize)
-				.append("\nUnits: ").append(units).append("\nTimes: ").append(meetingTimes)
-				.append("\nLocation: ").append(location).append("\n");
-		return course.toString();
+		return Writable.toString(this); // Same text writeTo streams
 		/*
 		String course = "CRN: " + courseID + "\n"
         		+ "Course: " + title + "\n"
@@ -181,6 +201,36 @@ public class Course implements Comparable<Course>{
         */
 	}
 	
+	/**
+     * Writes the Course information in the toString format straight into out
+     * @param out: where to write, such as a BufferedWriter
+     * @throws IOException when out throws it
+     */
+	@Override public void writeTo(Appendable out) throws IOException {
+		out.append("CRN: ").append(courseID).append("\nCourse: ").append(title)
+				.append("\nInstructor: ").append(teacher).append("\nClass Size: ").append(Integer.toString(courseSize))
+				.append("\nUnits: ").append(Integer.toString(units)).append("\nTimes: ").append(meetingTimes)
+				.append("\nLocation: ").append(location).append("\n");
+	}
+	
+	/**
+     * Writes the Course as one JSON object, such as
+     * {"crn":"33845","title":"ACCT 212 ...","instructor":"Kepler, J. ","size":72,
+     * "units":2,"times":"Mon, Fri 8:00 AM - 9:45 AM","location":"GSB Patterson 107"}
+     * @param out: where to write
+     * @throws IOException when out throws it
+     */
+	public void writeJson(Appendable out) throws IOException {
+		Json.string(out.append("{\"crn\":"), courseID);
+		Json.string(out.append(",\"title\":"), title);
+		Json.string(out.append(",\"instructor\":"), teacher);
+		out.append(",\"size\":").append(Integer.toString(courseSize));
+		out.append(",\"units\":").append(Integer.toString(units));
+		Json.string(out.append(",\"times\":"), meetingTimes);
+		Json.string(out.append(",\"location\":"), location);
+		out.append('}');
+	}
+	
 	/**
      * Determines whether two Course objects are equal by comparing courseID, titles, and teachers
      * @param otherCourse: the second Course object
@@ -193,7 +243,9 @@ public class Course implements Comparable<Course>{
         	return false;
         else {
         	Course C = (Course) otherCourse;
-        	return this.courseID.equals(C.getCourseID()); // To be equal, must have same course ID
+        	if (crn != NO_CRN || C.crn != NO_CRN)
+        		return crn == C.crn; // To be equal, must have same course ID
+        	return Objects.equals(courseID, C.courseID);
       }
 	}
 
@@ -207,32 +259,39 @@ public class Course implements Comparable<Course>{
      */
 	@Override
 	public int compareTo(Course otherCourse) {
-		if (this.courseID.equals(otherCourse.courseID)) { // Course IDs should be unique for the quarter
-			return 0;
-		} 
-    	else {
-    		if (Integer.parseInt(this.courseID) < Integer.parseInt(otherCourse.courseID))
-    			return -1;
-    		else
-    			return 1;
-		}
+		return Integer.compare(crn, otherCourse.crn); // Course IDs should be unique for the quarter
 	}
 	
 	/**
-     * Returns a consistent hash code for each Course by summing the Unicode values of each character in the key
-     * Key = courseID + title
+     * Returns a hash code consistent with equals: the CRN as a number, so IDs
+     * such as "033845" and "33845" that are equal also hash the same
+     * Key = courseID, or the String itself when it is not a number
      * @return the hash code
      */
 	@Override public int hashCode() {
-    	String key = courseID;
-        int sum = 0;
-        for (int i = 0; i < key.length(); i++) {
-              sum += (int) key.charAt(i);
-        }
-        return sum;
+        return (crn != NO_CRN) ? crn : Objects.hashCode(courseID);
     }
 	
+	/**
+     * Parses a course ID the way CourseCatalog checks it: 1 to 9 ASCII digits
+     * @param courseID: the course ID, or null for a search key without one
+     * @return the number, or NO_CRN when courseID is not one
+     */
+	static int parseCRN(String courseID) {
+		if (courseID == null || courseID.isEmpty() || courseID.length() > 9)
+			return NO_CRN;
+		int n = 0;
+		for (int i = 0; i < courseID.length(); i++) {
+			char c = courseID.charAt(i);
+			if (c < '0' || c > '9') // Not Character.isDigit, which also takes other scripts' digits
+				return NO_CRN;
+			n = n * 10 + (c - '0');
+		}
+		return n;
+	}
+	
 	private Course() {
+		this.crn = NO_CRN;
 	}
 	
 	public static Course getByCourseID(String courseID) {
@@ -11,13 +11,24 @@
  * ** DESCRIPTION HERE **
  */
 
-import java.io.File;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
-import java.util.NoSuchElementException;
 import java.util.Scanner;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 public class CourseCatalog {
 
@@ -29,20 +40,44 @@ public class CourseCatalog {
 		}
 	};
 
-	private Hash<Course> ht;
+	private volatile ConcurrentHash<Course> ht; // Read without the lock by getCourse
+	private IntHash<Course> crnIndex; // CRN lookups without allocating a search key
 	private BST<Course> bstCRN;
 	private BST<Course> bstTitle;
+	private TimeSlotIndex slots; // Courses by day and meeting time
+	private RoomIndex rooms; // When each location is in use
+	private CatalogJournal journal; // Changes since the data file was last written
+	private String fileName; // Data file the journal belongs to
+	private CheckpointService checkpoints; // Writes files in the background
+	// Changes hold the write lock; copies taken for checkpoints hold the read lock
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private static final int PAGE_SIZE = 10; // Courses per page of a sorted listing
+	private static final int PARALLEL_BUILD_MIN = 10000; // Fewest courses worth building indexes in parallel
+	private static final int CHECKPOINT_MINUTES = 5; // Time between background journal compactions
+	private static final int SCHEDULES_SHOWN = 20; // Most schedules the schedule menu prints
+	private static final int BOOKINGS_SHOWN = 5; // Most clashing pairs the room menu prints per room
 
 	private final String[] mainMenuItems = { "1. Add new course", "2. Delete course", "3. Search course", "4. Display courses",
-			"5. Write data to a file", "Q. Quit" };
+			"5. Write data to a file", "6. Plan a schedule", "7. Room usage",
+			"Q. Quit" };
 
 	private final String[] searchMenuItems = { "1. Find course by CRN code",
-			"2. Find by title", "B. Back" };
+			"2. Find by title", "3. Find by title prefix", "4. Find by CRN range", "5. Find by meeting time",
+			"B. Back" };
+	private final String[] scheduleMenuItems = { "1. Check CRNs for time conflicts",
+			"2. List conflict-free schedules for titles", "B. Back" };
+	private final String[] roomMenuItems = { "1. List double-booked rooms", "2. Find free rooms",
+			"3. Show room utilization", "B. Back" };
 	private final String[] listMenuItems = { "1. List unsorted data",
 			"2. List data sorted by the CRN code", "3. List data sorted by the Title",
 			"B. Back" };
 
 	public static void main(String[] arg) {
+		if (arg.length > 0 && arg[0].equals("-batch")) {
+			runBatch(arg);
+			return;
+		}
 		CourseCatalog cc = new CourseCatalog();
 
 		System.out.println("Welcome to Stanford's course catalog!");
@@ -54,8 +89,10 @@ public class CourseCatalog {
 			try {
 				cc.readFile(fileName);
 				break;
-			} catch (IOException e) {
+			} catch (NoSuchFileException e) {
 				System.out.println("Invalid name of file. Please try again.");
+			} catch (IOException e) {
+				System.out.println(e.getMessage());
 			}
 		}
 		cc.bstTitle.preOrderPrint();
@@ -64,10 +101,60 @@ public class CourseCatalog {
 		// Auto print contents to ClassDataAuto.txt after program runs
 		System.out.println("Data saved to file ClassDataAuto.txt");
 		cc.printTxt("ClassDataAuto");
+		cc.close();
 		
 		System.out.println("\nBye!");
 	}
 
+	/**
+	 * Runs commands without menus: java CourseCatalog -batch dataFile [commandFile]
+	 * reads commands from commandFile, or stdin without one, and writes one JSON
+	 * line per command to stdout. Other messages go to stderr. See CatalogBatch
+	 * 
+	 * @param arg the command line
+	 */
+	private static void runBatch(String[] arg) {
+		if (arg.length < 2) {
+			System.err.println("Usage: java CourseCatalog -batch dataFile [commandFile]");
+			System.exit(2);
+		}
+		PrintStream results = System.out;
+		System.setOut(System.err); // Keep stdout for results only
+		CourseCatalog cc = null;
+		int status = 0;
+		try {
+			cc = open(arg[1]);
+			try (BufferedReader in = (arg.length > 2) ? Files.newBufferedReader(Paths.get(arg[2]))
+					: new BufferedReader(new InputStreamReader(System.in))) {
+				BufferedWriter out = new BufferedWriter(new OutputStreamWriter(results, StandardCharsets.UTF_8), 1 << 16);
+				if (new CatalogBatch(cc, out).run(in) > 0) {
+					status = 3; // Some commands failed
+				}
+				out.flush();
+			}
+		} catch (IOException e) {
+			System.err.println(e);
+			status = 1;
+		}
+		if (cc != null) {
+			cc.close();
+		}
+		System.exit(status);
+	}
+
+	/**
+	 * Loads a catalog for use without the menus
+	 * 
+	 * @param fileName name of the data file without the .txt extension
+	 * @return the catalog, to be closed when no longer used
+	 * @throws IOException when the file cannot be read
+	 */
+	static CourseCatalog open(String fileName) throws IOException {
+		CourseCatalog cc = new CourseCatalog();
+		cc.readFile(fileName);
+		return cc;
+	}
+
 	/*** MENU METHODS ***/
 
 	/**
@@ -98,6 +185,12 @@ public class CourseCatalog {
 			case "5":
 				writeMenu(sc);
 				break;
+			case "6":
+				scheduleMenu(sc);
+				break;
+			case "7":
+				roomMenu(sc);
+				break;
 			case "Q":
 				return;
 			default:
@@ -116,9 +209,9 @@ public class CourseCatalog {
 			System.out.println("\nEnter information about new course:");
 			System.out.print("CRN: ");
 			String crn = sc.nextLine();
-			Course searchKeyCrn = Course.getByCourseID(crn);
-			Course foundCourse = ht.search(searchKeyCrn);
-			if (foundCourse != null) {
+			if (!isValidCRN(crn)) {
+				System.out.println("\nCRN must be a number. Please try another code.");
+			} else if (crnIndex.contains(Course.parseCRN(crn))) {
 				System.out.println("\nCourse with such code already exist. Please try another code.");
 			} else {	
 				System.out.print("Course title and department: ");
@@ -137,9 +230,8 @@ public class CourseCatalog {
 				String loc = sc.nextLine();
 
 				Course c = new Course(crn, title, instructor, size, units, times, loc);
-				ht.insert(c);
-				bstCRN.insert(c);
-				bstTitle.insert(c);
+				addCourse(c);
+				commit();
 				System.out.printf("\n%s %s was added!\n", crn, title);
 				break;
 			}
@@ -154,28 +246,11 @@ public class CourseCatalog {
 	private void deleteMenu(Scanner sc) {
 		System.out.print("\nEnter the CRN for removing course: ");
 		String crn = sc.nextLine();
-		Course searchKeyCrn = Course.getByCourseID(crn);
-		
-		try {
-			bstCRN.remove(searchKeyCrn);
-			String title = ht.search(searchKeyCrn).getTitle();
-			Course searchKeyTitle = Course.getByTitle(crn, title);
-			ht.remove(searchKeyCrn);
-			// find all matches courses by title
-			ArrayList<Course> courses = bstTitle.search(searchKeyTitle);
-			// remove all matches courses from bst
-			for(int i = 0; i < courses.size(); i++) {
-				bstTitle.remove(searchKeyTitle);
-			}
-			// add back to bst removed courses except one with removing crn 
-			for(Course course: courses) {
-				if(!searchKeyTitle.equals(course)) {
-					bstTitle.insert(course);
-				}
-			}
-			System.out.printf("Course with CRN %s was successfully removed\n", crn);			
-		} catch (NoSuchElementException e) {
-			System.out.printf("There are no course with code %s\n", searchKeyCrn);
+		if (deleteCourse(crn)) {
+			commit();
+			System.out.printf("Course with CRN %s was successfully removed\n", crn);
+		} else {
+			System.out.printf("There are no course with code %s\n", crn);
 		}
 	}
 
@@ -195,8 +270,7 @@ public class CourseCatalog {
 			case "1":
 				System.out.print("\nEnter course CRN: ");
 				String crnCode = sc.nextLine();
-				Course searchKeyCrn = Course.getByCourseID(crnCode);
-				Course foundCourse = ht.search(searchKeyCrn);
+				Course foundCourse = searchCRN(crnCode);
 				
 				if(foundCourse != null) {
 					System.out.println("\nCourse found:\n");
@@ -219,6 +293,40 @@ public class CourseCatalog {
 					System.out.printf("Course %s not found\n", title);
 				}
 				return;
+			case "3":
+				System.out.print("\nEnter beginning of title (e.g. ACCT): ");
+				String prefix = sc.nextLine();
+				printFound(bstTitle.prefix(Course.getByTitle(prefix), c -> c.getTitle().startsWith(prefix)));
+				return;
+			case "4":
+				System.out.print("\nEnter lowest CRN: ");
+				String lo = sc.nextLine();
+				System.out.print("Enter highest CRN: ");
+				String hi = sc.nextLine();
+				if (!isValidCRN(lo) || !isValidCRN(hi)) {
+					System.out.println("CRN must be a number.");
+				} else {
+					printFound(bstCRN.range(Course.getByCourseID(lo), Course.getByCourseID(hi)));
+				}
+				return;
+			case "5":
+				System.out.print("\nEnter day (e.g. Mon): ");
+				int day = MeetingTime.dayOf(sc.nextLine());
+				System.out.print("Enter time (e.g. 9:00 AM): ");
+				int from = MeetingTime.parseTime(sc.nextLine());
+				System.out.print("Enter end time, or nothing for courses in session at that time: ");
+				String end = sc.nextLine();
+				int to = end.trim().isEmpty() ? from + 1 : MeetingTime.parseTime(end);
+				if (day < 0) {
+					System.out.println("Day must be one of Mon, Tue, Wed, Thu, Fri, Sat, Sun.");
+				} else if (from < 0 || to < 0) {
+					System.out.println("Time must be like 9:00 AM or 1:30 PM.");
+				} else if (to <= from) {
+					System.out.println("End time must be after the start time.");
+				} else {
+					printFound(findMeeting(day, from, to));
+				}
+				return;
 			case "B":
 				return;
 			default:
@@ -227,6 +335,201 @@ public class CourseCatalog {
 		}
 	}
 
+	/**
+	 * Schedule menu checks a set of CRNs for clashes, or lists the schedules
+	 * that take one section of each of several titles without clashes
+	 * @param sc
+	 */
+	private void scheduleMenu(Scanner sc) {
+		String input = "";
+		while (true) {
+			System.out.println();
+			printMenu(scheduleMenuItems);
+			System.out.print("\nEnter your choice: ");
+			input = sc.nextLine().toUpperCase();
+			switch (input) {
+			case "1":
+				System.out.print("\nEnter CRNs separated by spaces or commas: ");
+				ArrayList<Course> courses = new ArrayList<>();
+				for (String crn : sc.nextLine().split("[\\s,]+")) {
+					if (crn.isEmpty()) {
+						continue;
+					}
+					Course c = getCourse(crn);
+					if (c == null) {
+						System.out.printf("Course with CRN = %s not found\n", crn);
+					} else {
+						courses.add(c);
+					}
+				}
+				ArrayList<Course[]> conflicts = ScheduleEngine.conflicts(courses);
+				if (conflicts.isEmpty()) {
+					System.out.println("\nNo time conflicts among " + courses.size() + " courses");
+				} else {
+					System.out.println("\nTime conflicts:\n");
+					for (Course[] pair : conflicts) {
+						System.out.println(pair[0].getCourseID() + " " + pair[0].getTitle() + " (" + pair[0].meetingTimes()
+								+ ") and " + pair[1].getCourseID() + " " + pair[1].getTitle() + " ("
+								+ pair[1].meetingTimes() + ")");
+					}
+				}
+				return;
+			case "2":
+				System.out.println("\nEnter course titles, one per line, and an empty line to finish:");
+				ArrayList<String> titles = new ArrayList<>();
+				String title;
+				while (sc.hasNextLine() && !(title = sc.nextLine()).trim().isEmpty()) {
+					titles.add(title);
+				}
+				printSchedules(titles);
+				return;
+			case "B":
+				return;
+			default:
+				System.out.println("Wrong input. Please try again.");
+			}
+		}
+	}
+
+	/**
+	 * Prints how many conflict-free schedules a list of titles has, and the
+	 * first SCHEDULES_SHOWN of them
+	 * 
+	 * @param titles the exact titles, one section of each per schedule
+	 */
+	private void printSchedules(ArrayList<String> titles) {
+		ArrayList<ArrayList<Course>> sections = new ArrayList<>();
+		for (String title : titles) {
+			ArrayList<Course> found = findByTitle(title);
+			if (found.isEmpty()) {
+				System.out.printf("Course %s not found\n", title);
+				return;
+			}
+			sections.add(found);
+		}
+		ScheduleEngine.Result result = ScheduleEngine.schedules(sections, SCHEDULES_SHOWN);
+		System.out.println("\n" + result.getCount() + " conflict-free schedules"
+				+ (result.getCount() > SCHEDULES_SHOWN ? ", showing the first " + SCHEDULES_SHOWN : ""));
+		int n = 0;
+		for (Course[] schedule : result.getSchedules()) {
+			System.out.println("\nSchedule " + ++n + ":");
+			for (Course c : schedule) {
+				System.out.println("  " + c.getCourseID() + " " + c.getTitle() + " | " + c.meetingTimes() + " | "
+						+ c.location());
+			}
+		}
+	}
+
+	/**
+	 * Room menu reports double-booked rooms, rooms free at a time, and how
+	 * much of the week each room is in use
+	 * @param sc
+	 */
+	private void roomMenu(Scanner sc) {
+		String input = "";
+		while (true) {
+			System.out.println();
+			printMenu(roomMenuItems);
+			System.out.print("\nEnter your choice: ");
+			input = sc.nextLine().toUpperCase();
+			switch (input) {
+			case "1":
+				printDoubleBookings();
+				return;
+			case "2":
+				System.out.print("\nEnter day (e.g. Mon): ");
+				int day = MeetingTime.dayOf(sc.nextLine());
+				System.out.print("Enter start time (e.g. 9:00 AM): ");
+				int from = MeetingTime.parseTime(sc.nextLine());
+				System.out.print("Enter end time (e.g. 10:30 AM): ");
+				int to = MeetingTime.parseTime(sc.nextLine());
+				if (day < 0) {
+					System.out.println("Day must be one of Mon, Tue, Wed, Thu, Fri, Sat, Sun.");
+				} else if (from < 0 || to < 0) {
+					System.out.println("Time must be like 9:00 AM or 1:30 PM.");
+				} else if (to <= from) {
+					System.out.println("End time must be after the start time.");
+				} else {
+					ArrayList<String> free = findFreeRooms(day, from, to);
+					System.out.println(free.isEmpty() ? "No rooms free" : "\nFree rooms:\n");
+					for (String room : free) {
+						System.out.println(room);
+					}
+				}
+				return;
+			case "3":
+				printUtilization();
+				return;
+			case "B":
+				return;
+			default:
+				System.out.println("Wrong input. Please try again.");
+			}
+		}
+	}
+
+	/**
+	 * Prints every double-booked room, how long it is double-booked each week,
+	 * and the first BOOKINGS_SHOWN clashing sections
+	 */
+	private void printDoubleBookings() {
+		lock.readLock().lock();
+		try {
+			ArrayList<String> booked = rooms.doubleBookedRooms();
+			if (booked.isEmpty()) {
+				System.out.println("No rooms are double-booked");
+				return;
+			}
+			System.out.println("\n" + booked.size() + " double-booked rooms:");
+			for (String room : booked) {
+				System.out.println("\n" + room + ": " + rooms.doubleBookedMinutes(room) + " minutes a week");
+				for (Course[] pair : rooms.doubleBookings(room, BOOKINGS_SHOWN)) {
+					System.out.println("  " + pair[0].getCourseID() + " " + pair[0].getTitle() + " ("
+							+ pair[0].meetingTimes() + ") and " + pair[1].getCourseID() + " " + pair[1].getTitle() + " ("
+							+ pair[1].meetingTimes() + ")");
+				}
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Prints the share of the teaching week each room is in use, and over all
+	 * rooms
+	 */
+	private void printUtilization() {
+		lock.readLock().lock();
+		try {
+			System.out.println("\nRoom use, Mon to Fri 8:00 AM to 10:00 PM:\n");
+			for (String room : rooms.rooms()) {
+				System.out.printf("%5.1f%%  %s\n", rooms.utilization(room), room);
+			}
+			System.out.printf("%5.1f%%  All %d rooms\n", rooms.utilization(), rooms.rooms().size());
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Prints the courses from a range query as they are found
+	 * 
+	 * @param courses the lazily evaluated courses to print
+	 */
+	private void printFound(Iterable<Course> courses) {
+		boolean found = false;
+		for (Course c : courses) {
+			if (!found) {
+				System.out.println("\nFound courses:\n");
+				found = true;
+			}
+			System.out.println(c);
+		}
+		if (!found) {
+			System.out.println("No courses found");
+		}
+	}
+
 	/**
 	 * Display courses in specific order
 	 * @param sc
@@ -245,11 +548,11 @@ public class CourseCatalog {
 				return;
 			case "2":
 				System.out.println("\n*** Courses in sorted order by the CRN ***\n");
-				bstCRN.inOrderPrint();
+				printSorted(sc, bstCRN);
 				return;
 			case "3":
 				System.out.println("\n*** Courses in sorted order by Title ***\n");
-				bstTitle.inOrderPrint();
+				printSorted(sc, bstTitle);
 				return;
 			case "B":
 				return;
@@ -259,6 +562,37 @@ public class CourseCatalog {
 		}
 	}
 
+	/**
+	 * Asks for a page number and prints that page of a sorted tree, or the whole
+	 * tree if no page is given
+	 * 
+	 * @param sc
+	 * @param bst the tree to list
+	 */
+	private void printSorted(Scanner sc, BST<Course> bst) {
+		int pages = Math.max(1, (bst.getSize() + PAGE_SIZE - 1) / PAGE_SIZE);
+		System.out.printf("Enter page number (1-%d, or press Enter for all): ", pages);
+		String input = sc.nextLine().trim();
+		if (input.isEmpty()) {
+			System.out.println();
+			bst.inOrderPrint();
+			return;
+		}
+		try {
+			int page = Integer.parseInt(input);
+			if (page < 1 || page > pages) {
+				System.out.println("No such page.");
+				return;
+			}
+			System.out.printf("\n*** Page %d of %d ***\n\n", page, pages);
+			for (Course c : bst.slice((page - 1) * PAGE_SIZE, PAGE_SIZE)) {
+				System.out.println(c);
+			}
+		} catch (NumberFormatException e) {
+			System.out.println("Wrong input.");
+		}
+	}
+
 	/**
 	 * Asks user file name for writing data
 	*/
@@ -266,100 +600,485 @@ public class CourseCatalog {
 		System.out.println();
 		System.out.print("Please enter file name: ");
 		String fileName = sc.nextLine();
-		System.out.println("*** Writing data to the file ***");
+		System.out.println("*** Writing data to the file in the background ***");
 		printTxt(fileName);
 	}
 
+	/*** CHANGES ***/
+
 	/**
-	 * Prints menu options to the screen
+	 * Adds a course to every index and logs it to the journal
 	 * 
-	 * @param menuItems array of menu items to be printed
+	 * @param c the course to add
+	 * @return false if a course with the same CRN is already listed
 	 */
-	private void printMenu(String[] menuItems) {
-		for (int i = 0; i < menuItems.length; i++) {
-			System.out.println(menuItems[i]);
+	boolean addCourse(Course c) {
+		lock.writeLock().lock();
+		try {
+			if (!isValidCRN(c.getCourseID()) || crnIndex.contains(c.getCRN())) {
+				return false;
+			}
+			insertCourse(c);
+			journal.logAdd(c);
+			compactIfNeeded();
+			return true;
+		} finally {
+			lock.writeLock().unlock();
 		}
 	}
 
 	/**
-	 * Returns string with desired information, ignoring information labels in
-	 * ClassData.txt
+	 * Removes the course with a CRN from every index and logs it to the journal
 	 * 
-	 * @param in Scanner that contains contents of .txt file
-	 * @precondition Scanner has lines to read
-	 * @returns String with desired information
+	 * @param crn the CRN of the course
+	 * @return false if no course has the CRN
 	 */
-	private String info(Scanner in) {
-		String str = in.nextLine();
-		str = str.substring(str.indexOf(": ") + 2);
-		return str;
+	boolean deleteCourse(String crn) {
+		lock.writeLock().lock();
+		try {
+			if (!removeCourse(crn)) {
+				return false;
+			}
+			journal.logDelete(crn);
+			compactIfNeeded();
+			return true;
+		} finally {
+			lock.writeLock().unlock();
+		}
 	}
 
 	/**
-	 * Populates both BSTs and hash table with data from .txt file
+	 * Replaces the course with the same CRN and logs it to the journal
 	 * 
-	 * @precondition .txt file to read data from must be in proper format
-	 * @postcondition BSTs and hash tables created and populated
+	 * @param c the new version of the course
+	 * @return false if no course has the CRN
 	 */
-	private void readFile(String fileName) throws IOException {
-		File file = new File(fileName + ".txt");
-		Scanner in = new Scanner(file);
-		String str, courseID, title, instructor, location, schedule;
-		int size, units;
+	boolean updateCourse(Course c) {
+		lock.writeLock().lock();
+		try {
+			Course found = searchCRN(c.getCourseID());
+			if (found == null || !replaceCourse(found, c)) {
+				return false;
+			}
+			journal.logUpdate(c);
+			compactIfNeeded();
+			return true;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
 
-		in.nextLine(); // Skip title line
-		str = in.nextLine();
-		System.out.println(str);
+	/**
+	 * Waits until every change so far is on disk
+	 */
+	void commit() {
+		try {
+			journal.sync();
+		} catch (IOException e) {
+			System.out.println("Could not save the change: " + e.getMessage());
+		}
+	}
 
-		int courseCount = Integer.parseInt(str.substring(0, str.indexOf(" "))); // Get course count from .txt
-		in.nextLine(); // Skip empty line
+	/**
+	 * Applies a change read back from the journal, without logging it again
+	 * 
+	 * @param entry the change
+	 */
+	private void replay(CatalogJournal.Entry entry) {
+		switch (entry.type) {
+		case CatalogJournal.ADD:
+			insertCourse(entry.course);
+			break;
+		case CatalogJournal.DELETE:
+			removeCourse(entry.courseID);
+			break;
+		case CatalogJournal.UPDATE:
+			Course found = searchCRN(entry.courseID);
+			if (found == null || !replaceCourse(found, entry.course)) {
+				insertCourse(entry.course);
+			}
+			break;
+		default:
+			System.out.println("Unknown journal record " + entry.type + ", skipped");
+		}
+	}
 
-		ht = new Hash<>(courseCount * 2);
-		bstCRN = new BST<>();
-		bstTitle = new BST<>(secondaryCompare);
+	/**
+	 * Compacts the journal once it has grown enough, from a copy of the
+	 * catalog taken right after the last change logged
+	 * 
+	 * @precondition the caller holds the write lock, or no other thread uses
+	 *               the catalog yet
+	 */
+	private void compactIfNeeded() {
+		if (journal.needsCompaction()) {
+			journal.compact(new CatalogSnapshot(bstCRN, bstTitle, journal.lastSequence()));
+		}
+	}
 
-		while (in.hasNext()) {
+	/**
+	 * Compacts the journal if anything was logged since the last compaction.
+	 * Runs on the checkpoint thread, so it only holds the read lock while it
+	 * copies the trees
+	 */
+	private void compactJournal() {
+		lock.readLock().lock();
+		try {
+			if (journal.hasNewRecords()) {
+				journal.compact(new CatalogSnapshot(bstCRN, bstTitle, journal.lastSequence()));
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
 
-			courseID = info(in); // Get CRN
-			title = info(in); // Get course title
-			instructor = info(in); // Get instructor
-			size = Integer.parseInt(info(in)); // Get class size
-			units = Integer.parseInt(info(in)); // Get class units
-			schedule = info(in); // Get class meeting times
-			location = info(in); // Get class location
+	/**
+	 * Copies what a save of the catalog to a file needs: the courses in hash
+	 * table order for the .txt file, and copies of both trees for the .snap
+	 * file. Only the copying holds the read lock, not the time the files take
+	 * to write
+	 * 
+	 * @param fileName name of the file to be written, without an extension
+	 * @return the checkpoint
+	 */
+	private CheckpointService.Checkpoint capture(String fileName) {
+		lock.readLock().lock();
+		try {
+			Course[] listing = new Course[ht.getNumElements()];
+			int i = 0;
+			for (Course c : ht) {
+				listing[i++] = c;
+			}
+			boolean ownFile = fileName.equals(this.fileName);
+			long sequence = ownFile ? journal.lastSequence() : 0;
+			return new CheckpointService.Checkpoint(listing, new CatalogSnapshot(bstCRN, bstTitle, sequence), !ownFile);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
 
-			Course c = new Course(courseID, title, instructor, size, units, schedule, location);
+	private void insertCourse(Course c) {
+		ht.insert(c);
+		crnIndex.insert(c.getCRN(), c);
+		bstCRN.insert(c);
+		bstTitle.insert(c);
+		slots.add(c);
+		rooms.add(c);
+	}
 
-			ht.insert(c);
-			bstCRN.insert(c);
-			bstTitle.insert(c);
+	/**
+	 * Removes one course with a CRN from every index. When the CRN is listed
+	 * more than once, another section takes its place in crnIndex
+	 * 
+	 * @param crn the CRN of the course
+	 * @return false if no course has the CRN
+	 */
+	private boolean removeCourse(String crn) {
+		Course found = searchCRN(crn);
+		return found != null && removeCourse(found);
+	}
 
-			if (in.hasNext()) { // Skip empty line separating course info
-				in.nextLine();
+	/**
+	 * Removes a course from every index. The course itself is removed, not
+	 * just one with the same CRN, so every index lets go of the same section
+	 * of a CRN listed more than once
+	 * 
+	 * @param found the course, as stored in the indexes
+	 * @return false if the course is missing from an index, in which case no
+	 *         index is changed
+	 */
+	private boolean removeCourse(Course found) {
+		if (!ht.containsInstance(found) || !bstCRN.containsInstance(found) || !bstTitle.containsInstance(found)) {
+			return false;
+		}
+		ht.removeInstance(found);
+		bstCRN.removeInstance(found);
+		// sections of a title share one node, so only this course leaves the group
+		bstTitle.removeInstance(found);
+		if (crnIndex.search(found.getCRN()) == found) {
+			crnIndex.remove(found.getCRN());
+			Course duplicate = ht.search(found); // Another section listed under the same CRN
+			if (duplicate != null) {
+				crnIndex.insert(found.getCRN(), duplicate);
 			}
 		}
-		in.close();
+		slots.remove(found);
+		rooms.remove(found);
+		return true;
 	}
 
 	/**
-	 * Prints file contents to ClassDataUpdated.txt at the end of program
+	 * Puts a new version of a course in the place of the old one in every
+	 * index. The hash table swaps them in one step, so getCourse, which does
+	 * not take the lock, finds one version or the other while this runs
 	 * 
-	 * @postcondition Text file generated in the style of ClassData.txt, unsorted
+	 * @param found the course, as stored in the indexes
+	 * @param c the new version, with the same CRN
+	 * @return false if the course is missing from an index, in which case no
+	 *         index is changed
 	 */
-	private void printTxt(String fileName) {
+	private boolean replaceCourse(Course found, Course c) {
+		if (!ht.containsInstance(found) || !bstCRN.containsInstance(found) || !bstTitle.containsInstance(found)) {
+			return false;
+		}
+		ht.replace(found, c); // Same CRN, so the same hash code
+		bstCRN.removeInstance(found);
+		bstCRN.insert(c);
+		bstTitle.removeInstance(found);
+		bstTitle.insert(c);
+		if (crnIndex.search(found.getCRN()) == found) {
+			crnIndex.remove(found.getCRN());
+			crnIndex.insert(c.getCRN(), c);
+		}
+		slots.remove(found);
+		slots.add(c);
+		rooms.remove(found);
+		rooms.add(c);
+		return true;
+	}
 
+	/**
+	 * Waits for the saves in progress and the journal to finish writing, and
+	 * stops their threads
+	 */
+	void close() {
+		checkpoints.close();
 		try {
-			PrintWriter print = new PrintWriter(fileName + ".txt");
-			print.println( // Print header
-					"Stanford ExploreCourses 2019-2020 (" + fileName + ".txt) \n" + ht.getNumElements()
-							+ " courses listed\n");
-			print.println(ht);
-			print.close();
+			journal.close();
 		} catch (IOException e) {
 			System.out.println(e);
 		}
 	}
 
+	/**
+	 * Returns the course with a CRN. Reads the hash table without taking the
+	 * lock, so lookups are not held up by changes or checkpoints
+	 * 
+	 * @param crn the CRN
+	 * @return the course or null if crn is not a number or not in the catalog
+	 */
+	Course getCourse(String crn) {
+		if (!isValidCRN(crn)) {
+			return null;
+		}
+		return ht.search(Course.getByCourseID(crn));
+	}
+
+	/**
+	 * Returns every section with a title
+	 * 
+	 * @param title the exact title
+	 * @return the sections, in CRN order
+	 */
+	ArrayList<Course> findByTitle(String title) {
+		lock.readLock().lock();
+		try {
+			return bstTitle.search(Course.getByTitle(title));
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the courses with CRNs in a range, in CRN order
+	 * 
+	 * @param lo the lowest CRN
+	 * @param hi the highest CRN
+	 * @param limit the most courses to return
+	 * @return the first limit courses from lo to hi inclusive
+	 */
+	ArrayList<Course> listByCRN(String lo, String hi, int limit) {
+		ArrayList<Course> found = new ArrayList<>();
+		lock.readLock().lock();
+		try {
+			for (Course c : bstCRN.range(Course.getByCourseID(lo), Course.getByCourseID(hi))) {
+				if (found.size() == limit) {
+					break;
+				}
+				found.add(c);
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		return found;
+	}
+
+	/**
+	 * Returns the courses in session on a day at any time in a span
+	 * 
+	 * @param day 0 for Mon through 6 for Sun
+	 * @param from minutes after midnight the span starts
+	 * @param to minutes after midnight the span ends, not included
+	 * @return the courses by start time, then end time, then CRN
+	 * @throws IllegalArgumentException when day is not a day
+	 */
+	ArrayList<Course> findMeeting(int day, int from, int to) throws IllegalArgumentException {
+		lock.readLock().lock();
+		try {
+			return slots.meetingBetween(day, from, to);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the rooms not in use at any time in a span of a day
+	 * 
+	 * @param day 0 for Mon through 6 for Sun
+	 * @param from minutes after midnight the span starts
+	 * @param to minutes after midnight the span ends, not included
+	 * @return the names of the free rooms, in alphabetical order
+	 * @throws IllegalArgumentException when day is not a day or the span is empty
+	 */
+	ArrayList<String> findFreeRooms(int day, int from, int to) throws IllegalArgumentException {
+		lock.readLock().lock();
+		try {
+			return rooms.freeRooms(day, from, to);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Looks up a course by CRN in the int-keyed index
+	 * 
+	 * @param crn the CRN as typed by the user
+	 * @return the course or null if crn is not a number or not in the catalog
+	 */
+	private Course searchCRN(String crn) {
+		if (!isValidCRN(crn)) {
+			return null;
+		}
+		return crnIndex.search(Course.parseCRN(crn));
+	}
+
+	/**
+	 * Determines whether a String is a CRN, i.e. 1 to 9 ASCII digits, parsed
+	 * the same way as Course.getCRN
+	 * 
+	 * @param crn the String to check
+	 * @return whether crn can be used as a CRN
+	 */
+	private boolean isValidCRN(String crn) {
+		return Course.parseCRN(crn) != Course.NO_CRN;
+	}
+
+	/**
+	 * Prints menu options to the screen
+	 * 
+	 * @param menuItems array of menu items to be printed
+	 */
+	private void printMenu(String[] menuItems) {
+		for (int i = 0; i < menuItems.length; i++) {
+			System.out.println(menuItems[i]);
+		}
+	}
+
+	/**
+	 * Populates both BSTs and hash table with data from .txt file, or from its
+	 * binary snapshot when there is one, then replays the changes in its
+	 * journal. A snapshot that cannot be read is an error rather than a
+	 * reason to read the .txt file, which lacks any changes compacted into it
+	 * 
+	 * @precondition .txt file to read data from must be in proper format
+	 * @postcondition BSTs and hash tables created and populated
+	 * @throws IOException when a file cannot be read, or the journal does not
+	 *                     continue from the data loaded
+	 */
+	private void readFile(String fileName) throws IOException {
+		long sequence;
+		if (CatalogSnapshot.exists(fileName)) { // Compaction may have left changes in it and nowhere else
+			if (!CatalogSnapshot.isCurrent(fileName)) {
+				System.out.println(fileName + ".txt was changed after " + fileName + ".snap was written. Loading "
+						+ fileName + ".snap, delete it and the journal to load the .txt file instead");
+			}
+			CatalogSnapshot snapshot;
+			try {
+				snapshot = CatalogSnapshot.read(fileName);
+			} catch (IOException e) { // Not the .txt file in its place, which may lack compacted changes
+				throw new IOException(e.getMessage() + " Delete it and the journal to load " + fileName
+						+ ".txt instead.", e);
+			}
+			System.out.println(snapshot.byCRN().length + " courses listed");
+			buildIndexes(snapshot.byCRN(), snapshot.byTitle());
+			sequence = snapshot.sequence();
+		} else {
+			ArrayList<Course> courses = CatalogLoader.load(fileName);
+			System.out.println(courses.size() + " courses listed");
+
+			Course[] array = courses.toArray(new Course[0]);
+			buildIndexes(array, array);
+			sequence = 0;
+		}
+
+		journal = CatalogJournal.open(fileName, sequence, this::replay);
+		this.fileName = fileName;
+		compactIfNeeded(); // Folds in what was replayed
+		if (rooms.getDoubleBookedRooms() > 0) {
+			System.out.println("Warning: " + rooms.getDoubleBookedRooms() + " rooms are double-booked, see Room usage");
+		}
+		if (checkpoints == null) {
+			checkpoints = new CheckpointService(this::capture);
+			checkpoints.schedule(this::compactJournal, CHECKPOINT_MINUTES, TimeUnit.MINUTES);
+		}
+	}
+
+	/**
+	 * Replaces all indexes with ones holding the given courses, using the bulk
+	 * loading paths: ConcurrentHash.insertAll presizes once, and each BST is built
+	 * balanced from a sorted array instead of one insert at a time. Large
+	 * catalogs build the six indexes at the same time
+	 * 
+	 * @param byCRN the courses of the catalog, in file order or CRN order
+	 * @param byTitle the same courses, already in title order if that is known
+	 */
+	private void buildIndexes(Course[] byCRN, Course[] byTitle) {
+		ConcurrentHash<Course> ht = new ConcurrentHash<>(); // Grows on its own as courses are inserted later
+		IntHash<Course> crnIndex = new IntHash<>(byCRN.length);
+		BST<Course> bstCRN = new BST<>();
+		BST<Course> bstTitle = new BST<>(secondaryCompare);
+		TimeSlotIndex slots = new TimeSlotIndex();
+		RoomIndex rooms = new RoomIndex();
+
+		Runnable[] builds = { () -> ht.insertAll(Arrays.asList(byCRN)), () -> {
+			for (Course c : byCRN) {
+				crnIndex.insert(c.getCRN(), c);
+			}
+		}, () -> bstCRN.buildFrom(byCRN), () -> bstTitle.buildFrom(byTitle), () -> slots.addAll(byCRN),
+				() -> rooms.addAll(byCRN) };
+		if (byCRN.length >= PARALLEL_BUILD_MIN) { // The indexes share nothing but the courses
+			ArrayList<ForkJoinTask<?>> tasks = new ArrayList<>();
+			for (Runnable build : builds) {
+				tasks.add(ForkJoinTask.adapt(build));
+			}
+			ForkJoinTask.invokeAll(tasks);
+		} else {
+			for (Runnable build : builds) {
+				build.run();
+			}
+		}
+
+		this.ht = ht;
+		this.crnIndex = crnIndex;
+		this.bstCRN = bstCRN;
+		this.bstTitle = bstTitle;
+		this.slots = slots;
+		this.rooms = rooms;
+	}
+
+	/**
+	 * Prints file contents to ClassDataUpdated.txt at the end of program. The
+	 * catalog is copied right away and the files are written in the background
+	 * 
+	 * @postcondition Text file generated in the style of ClassData.txt, unsorted,
+	 *                and a binary snapshot of it written to fileName.snap, once
+	 *                the returned Future is done
+	 * @return the pending write
+	 */
+	private Future<?> printTxt(String fileName) {
+		return checkpoints.save(fileName);
+	}
+
 	/**
 	 * Prints contents of data structures to console (for debug)
 	 * 
@@ -0,0 +1,77 @@
+/**
+ * CourseHash.java
+ * CIS 22C, Course Project
+ * Hash strategies for Courses, all keyed on the digits of the CRN after any
+ * leading zeros, so IDs that Course.equals treats as equal hash the same
+ */
+
+public enum CourseHash implements HashStrategy<Course> {
+
+	/**
+	 * Sum of the character values of the CRN. Every 5-digit CRN lands in a
+	 * range of about 90 values
+	 */
+	ADDITIVE {
+		@Override
+		public int hash(Course c) {
+			String key = c.getCourseID();
+			int sum = 0;
+			for (int i = keyStart(c); i < key.length(); i++) {
+				sum += key.charAt(i);
+			}
+			return sum;
+		}
+	},
+
+	/**
+	 * Polynomial rolling hash of the CRN, so digit order matters, followed by a
+	 * shift-xor to fold the high bits into the low ones
+	 */
+	POLYNOMIAL {
+		@Override
+		public int hash(Course c) {
+			String key = c.getCourseID();
+			int h = 0;
+			for (int i = keyStart(c); i < key.length(); i++) {
+				h = 31 * h + key.charAt(i);
+			}
+			return h ^ (h >>> 16);
+		}
+	},
+
+	/**
+	 * MurmurHash3 (32-bit) over the characters of the CRN
+	 */
+	MURMUR {
+		@Override
+		public int hash(Course c) {
+			String key = c.getCourseID();
+			int from = keyStart(c);
+			int h = 0;
+			for (int i = from; i < key.length(); i++) {
+				int k = key.charAt(i) * 0xcc9e2d51;
+				k = Integer.rotateLeft(k, 15) * 0x1b873593;
+				h = Integer.rotateLeft(h ^ k, 13) * 5 + 0xe6546b64;
+			}
+			return HashStrategy.mix(h ^ (key.length() - from));
+		}
+	};
+
+	/**
+	 * Returns where the hashed part of a course's ID starts: after the leading
+	 * zeros of a numeric CRN, at 0 for any other ID
+	 * 
+	 * @param c the course
+	 * @return the index of the first character to hash
+	 */
+	private static int keyStart(Course c) {
+		String key = c.getCourseID();
+		int i = 0;
+		if (c.getCRN() != Course.NO_CRN) {
+			while (i < key.length() - 1 && key.charAt(i) == '0') {
+				i++;
+			}
+		}
+		return i;
+	}
+}
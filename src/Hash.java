@@ -1,30 +1,84 @@
-
 /**
 * Hash.java
 * @author Yi Jou (Ruby) Liao
 * @author Alvin Nguyen
 * CIS 22C, Course Project
 */
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+public class Hash<T extends Comparable<T>> implements Iterable<T>, Writable {
 
-public class Hash<T extends Comparable<T>> {
+	private static final int DEFAULT_SIZE = 16;
+	private static final double MAX_LOAD_FACTOR = 0.75;
+	private static final int REHASH_STEP = 4; // Old buckets moved per insert/search/remove
 
 	private int numElements;
-	private ArrayList<List<T>> Table;
+	private ArrayList<UnrolledList<T>> Table;
+	private ArrayList<UnrolledList<T>> oldTable; // Non-null only while a rehash is in progress
+	private int rehashIndex; // Next bucket of oldTable still to be moved
+	private HashStrategy<? super T> strategy; // How keys are turned into hash codes
+
+	/**
+	 * Default constructor for the Hash.java class. Starts with a small table that
+	 * grows as keys are inserted
+	 */
+	public Hash() {
+		this(DEFAULT_SIZE);
+	}
 
 	/**
 	 * Constructor for the Hash.java class. Initializes the Table to be sized
-	 * according to value passed in as a parameter Inserts size empty Lists into the
-	 * table. Sets numElements to 0
+	 * according to value passed in as a parameter Inserts size empty UnrolledLists into the
+	 * table. Sets numElements to 0. The size is only a starting point; the Table
+	 * grows once the load factor passes MAX_LOAD_FACTOR
 	 * 
 	 * @param size the table size
 	 */
 	public Hash(int size) {
-		Table = new ArrayList<List<T>>();
+		this(size, HashStrategy.hashCodeOf());
+	}
+
+	/**
+	 * Constructor for the Hash.java class that hashes keys with a custom strategy
+	 * instead of their hashCode method
+	 * 
+	 * @param strategy how to compute the hash code of a key
+	 */
+	public Hash(HashStrategy<? super T> strategy) {
+		this(DEFAULT_SIZE, strategy);
+	}
+
+	/**
+	 * Constructor for the Hash.java class with both a starting size and a custom
+	 * hash strategy
+	 * 
+	 * @param size the table size
+	 * @param strategy how to compute the hash code of a key
+	 */
+	public Hash(int size, HashStrategy<? super T> strategy) {
+		this.strategy = strategy;
+		Table = newTable(Math.max(size, 1));
+		oldTable = null;
+		rehashIndex = 0;
+		numElements = 0;
+	}
+
+	/**
+	 * Creates a Table of empty buckets
+	 * 
+	 * @param size the number of buckets
+	 * @return the new Table
+	 */
+	private ArrayList<UnrolledList<T>> newTable(int size) {
+		ArrayList<UnrolledList<T>> table = new ArrayList<UnrolledList<T>>(size);
 		for (int i = 0; i < size; i++) {
-			Table.add(new List<T>());
+			table.add(new UnrolledList<T>());
 		}
-		numElements = 0;
+		return table;
 	}
 
 	/** Accessors */
@@ -34,11 +88,12 @@ public class Hash<T extends Comparable<T>> {
 	 * hashCode value for that key and the size of the table
 	 * 
 	 * @param t the key
+	 * @param size the size of the table being indexed
 	 * @return the index in the Table
 	 */
-	private int hash(T t) {
-		int code = t.hashCode();
-		return code % Table.size();
+	private int hash(T t, int size) {
+		int code = strategy.hash(t) & 0x7fffffff; // Negative hash codes must not give negative indices
+		return code % size;
 	}
 
 	/**
@@ -65,6 +120,33 @@ public class Hash<T extends Comparable<T>> {
 		return numElements;
 	}
 
+	/**
+	 * Returns the number of buckets in the Table
+	 * 
+	 * @return the number of buckets
+	 */
+	public int getTableSize() {
+		return Table.size();
+	}
+
+	/**
+	 * Returns the current ratio of keys to buckets
+	 * 
+	 * @return the load factor
+	 */
+	public double getLoadFactor() {
+		return (double) numElements / Table.size();
+	}
+
+	/**
+	 * Returns whether keys are still being moved from a smaller Table
+	 * 
+	 * @return whether a rehash is in progress
+	 */
+	public boolean isRehashing() {
+		return oldTable != null;
+	}
+
 	/**
 	 * Searches for a specified key in the Table
 	 * 
@@ -73,15 +155,61 @@ public class Hash<T extends Comparable<T>> {
 	 *         not found
 	 */
 	public T search(T t) {
-		int index = hash(t);
-		int index2 = Table.get(index).linearSearch(t);
-		if (index2 != -1) {
-			Table.get(index).advanceToIndex(index2);
-			return Table.get(index).getIterator();
+		rehashStep();
+		if (oldTable != null) { // Keys not moved yet are older than anything in Table
+			T found = search(t, oldTable);
+			if (found != null) {
+				return found;
+			}
+		}
+		return search(t, Table);
+	}
+
+	/**
+	 * Helper method for search Looks for a key in one table
+	 * 
+	 * @param t the key to search for
+	 * @param table the table to look in
+	 * @return the matching key or null if it is not found
+	 */
+	private T search(T t, ArrayList<UnrolledList<T>> table) {
+		for (T data : table.get(hash(t, table.size()))) { // One pass, bucket iterator untouched
+			if (t.equals(data)) {
+				return data;
+			}
 		}
 		return null;
 	}
 
+	/**
+	 * Determines whether a key itself is in the Table, as opposed to a key
+	 * equal to it
+	 * 
+	 * @param t the key to look for
+	 * @return whether t is in the Table
+	 */
+	public boolean containsInstance(T t) {
+		if (t == null) {
+			return false;
+		}
+		if (oldTable != null && containsInstance(t, oldTable)) {
+			return true;
+		}
+		return containsInstance(t, Table);
+	}
+
+	/**
+	 * Helper method for containsInstance Looks for a key itself in one table
+	 */
+	private boolean containsInstance(T t, ArrayList<UnrolledList<T>> table) {
+		for (T data : table.get(hash(t, table.size()))) {
+			if (data == t) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	/** Mutators */
 
 	/**
@@ -91,9 +219,43 @@ public class Hash<T extends Comparable<T>> {
 	 */
 	public void insert(T t) {
 		if (t != null) {
-			int bucket = hash(t);
+			rehashStep();
+			int bucket = hash(t, Table.size());
 			Table.get(bucket).addLast(t);
 			numElements++;
+			if (oldTable == null && numElements > Table.size() * MAX_LOAD_FACTOR) {
+				startRehash(Table.size() * 2);
+			}
+		}
+	}
+
+	/**
+	 * Inserts many keys at once. The Table is grown up front to the size the
+	 * final number of keys needs, so the keys are placed in one pass with no
+	 * rehashing in between
+	 * 
+	 * @param keys the keys to insert, null keys are skipped
+	 */
+	public void insertAll(Collection<? extends T> keys) {
+		finishRehash();
+		int size = Table.size();
+		while ((numElements + keys.size()) > size * MAX_LOAD_FACTOR) {
+			size *= 2;
+		}
+		if (size != Table.size()) { // Move the keys already here in one pass as well
+			ArrayList<UnrolledList<T>> old = Table;
+			Table = newTable(size);
+			for (UnrolledList<T> bucket : old) {
+				for (T t : bucket) {
+					Table.get(hash(t, size)).addLast(t);
+				}
+			}
+		}
+		for (T t : keys) {
+			if (t != null) {
+				Table.get(hash(t, size)).addLast(t);
+				numElements++;
+			}
 		}
 	}
 
@@ -105,14 +267,90 @@ public class Hash<T extends Comparable<T>> {
 	 */
 	public void remove(T t) {
 		if (t != null) {
-			int bucket = hash(t);
-			int listPos = Table.get(bucket).linearSearch(t);
-			if (listPos != -1) {
-				Table.get(bucket).advanceToIndex(listPos);
-				Table.get(bucket).removeIterator();
+			rehashStep();
+			if (oldTable == null || !remove(t, oldTable, false)) {
+				remove(t, Table, false);
+			}
+		}
+	}
+
+	/**
+	 * Removes a key itself from the Table, rather than the first key equal to
+	 * it, e.g. one of several sections listed under the same CRN
+	 * 
+	 * @param t the key to remove
+	 * @return whether t was in the Table
+	 */
+	public boolean removeInstance(T t) {
+		if (t == null) {
+			return false;
+		}
+		rehashStep();
+		return (oldTable != null && remove(t, oldTable, true)) || remove(t, Table, true);
+	}
+
+	/**
+	 * Helper method for remove Removes a key from one table
+	 * 
+	 * @param t the key to remove
+	 * @param table the table to remove from
+	 * @param sameInstance whether only t itself matches, not just an equal key
+	 * @return whether the key was found and removed
+	 */
+	private boolean remove(T t, ArrayList<UnrolledList<T>> table, boolean sameInstance) {
+		Iterator<T> cursor = table.get(hash(t, table.size())).iterator();
+		while (cursor.hasNext()) {
+			T data = cursor.next();
+			if (sameInstance ? data == t : t.equals(data)) {
+				cursor.remove();
 				numElements--;
+				return true;
 			}
 		}
+		return false;
+	}
+
+	/**
+	 * Swaps in a larger, empty Table. Existing keys stay in oldTable and are moved
+	 * over a few buckets at a time by rehashStep
+	 * 
+	 * @param size the number of buckets in the new Table
+	 */
+	private void startRehash(int size) {
+		oldTable = Table;
+		Table = newTable(size);
+		rehashIndex = 0;
+	}
+
+	/**
+	 * Moves up to REHASH_STEP buckets from oldTable into Table, spreading the cost
+	 * of growing across many calls instead of pausing for one full rehash
+	 */
+	private void rehashStep() {
+		if (oldTable == null) {
+			return;
+		}
+		for (int moved = 0; moved < REHASH_STEP && rehashIndex < oldTable.size(); moved++) {
+			UnrolledList<T> bucket = oldTable.get(rehashIndex);
+			while (!bucket.isEmpty()) { // Move from the back with addFirst so older keys stay in front
+				T t = bucket.getLast();
+				bucket.removeLast();
+				Table.get(hash(t, Table.size())).addFirst(t);
+			}
+			rehashIndex++;
+		}
+		if (rehashIndex == oldTable.size()) {
+			oldTable = null;
+		}
+	}
+
+	/**
+	 * Moves every remaining bucket out of oldTable
+	 */
+	private void finishRehash() {
+		while (oldTable != null) {
+			rehashStep();
+		}
 	}
 
 	/** Additional Methods */
@@ -132,16 +370,109 @@ public class Hash<T extends Comparable<T>> {
 		}
 	}
 
+	/**
+	 * Summarizes how evenly the keys are spread over the buckets: the chain length
+	 * distribution, the longest chain (the most keys a lookup may have to probe),
+	 * the average probes for a successful search and the ratio of empty buckets.
+	 * Finishes any rehash in progress first so every key is counted
+	 * 
+	 * @return the report, one statistic per line
+	 */
+	public String collisionReport() {
+		finishRehash();
+		int size = Table.size();
+		int empty = 0;
+		int maxChain = 0;
+		long probes = 0; // Finding the k-th key of a chain takes k probes
+		for (int i = 0; i < size; i++) {
+			int count = countBucket(i);
+			if (count == 0) {
+				empty++;
+			}
+			maxChain = Math.max(maxChain, count);
+			probes += (long) count * (count + 1) / 2;
+		}
+		int[] histogram = new int[maxChain + 1];
+		for (int i = 0; i < size; i++) {
+			histogram[countBucket(i)]++;
+		}
+
+		StringBuilder report = new StringBuilder();
+		report.append(String.format("Keys: %d, buckets: %d, load factor: %.2f\n", numElements, size, getLoadFactor()));
+		report.append(String.format("Empty buckets: %d (%.1f%%)\n", empty, 100.0 * empty / size));
+		report.append(String.format("Max probe length: %d\n", maxChain));
+		report.append(String.format("Average probes per successful search: %.2f\n",
+				numElements == 0 ? 0.0 : (double) probes / numElements));
+		report.append("Chain length distribution:\n");
+		for (int length = 0; length <= maxChain; length++) {
+			if (histogram[length] > 0) {
+				report.append(String.format("  %3d keys: %d buckets\n", length, histogram[length]));
+			}
+		}
+		return report.toString();
+	}
+
 	/**
 	 * Starting at the first bucket, and continuing in order until the last bucket,
-	 * concatenates all elements at all buckets into one String
+	 * concatenates all elements at all buckets into one String. Keys not yet moved
+	 * out of oldTable come first
 	 */
 	@Override
 	public String toString() {
-		String s = "";
-		for (int i = 0; i < Table.size(); i++) {
-			s += Table.get(i);
+		return Writable.toString(this);
+	}
+
+	/**
+	 * Writes every key on its own line, in the same order as toString, without
+	 * building the whole table as one String
+	 * 
+	 * @param out where to write
+	 * @throws IOException when out throws it
+	 */
+	@Override
+	public void writeTo(Appendable out) throws IOException {
+		for (T data : this) {
+			Writable.write(data, out);
+			out.append('\n');
 		}
-		return s;
+	}
+
+	/**
+	 * Returns an iterator over every key, in the same order as toString. It does
+	 * not move any rehash along, so several can run at once
+	 * 
+	 * @return an iterator over all keys
+	 */
+	@Override
+	public Iterator<T> iterator() {
+		return new Iterator<T>() {
+			private ArrayList<UnrolledList<T>> table = (oldTable != null) ? oldTable : Table;
+			private int bucket = (oldTable != null) ? rehashIndex : 0;
+			private Iterator<T> chain = table.get(bucket).iterator();
+
+			@Override
+			public boolean hasNext() {
+				while (!chain.hasNext()) {
+					if (bucket + 1 < table.size()) {
+						bucket++;
+					} else if (table != Table) { // Done with oldTable, continue in Table
+						table = Table;
+						bucket = 0;
+					} else {
+						return false;
+					}
+					chain = table.get(bucket).iterator();
+				}
+				return true;
+			}
+
+			@Override
+			public T next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException("next: No more keys in the Table.");
+				}
+				return chain.next();
+			}
+		};
 	}
 }
@@ -0,0 +1,46 @@
+/**
+ * HashStrategy.java
+ * CIS 22C, Course Project
+ * Decides how a key is turned into the int that Hash reduces to a bucket index
+ */
+
+public interface HashStrategy<T> {
+
+	/**
+	 * Returns the hash code for a key
+	 * 
+	 * @param key the key, never null
+	 * @return the hash code
+	 */
+	int hash(T key);
+
+	/**
+	 * Returns the strategy that uses the key's own hashCode method
+	 * 
+	 * @return a strategy calling hashCode
+	 */
+	static <T> HashStrategy<T> hashCodeOf() {
+		return new HashStrategy<T>() {
+			@Override
+			public int hash(T key) {
+				return key.hashCode();
+			}
+		};
+	}
+
+	/**
+	 * Scrambles the bits of a hash code with the MurmurHash3 finalizer, so that
+	 * every input bit affects every output bit
+	 * 
+	 * @param h the hash code to mix
+	 * @return the mixed hash code
+	 */
+	static int mix(int h) {
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+		return h;
+	}
+}
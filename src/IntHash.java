@@ -0,0 +1,193 @@
+/**
+ * IntHash.java
+ * CIS 22C, Course Project
+ * Hash table keyed by primitive ints, using open addressing with linear
+ * probing. Keys live in an int[] and values in a parallel array, so a lookup
+ * by key allocates nothing and walks contiguous memory.
+ */
+
+public class IntHash<V> {
+
+	private static final int DEFAULT_SIZE = 16;
+	private static final double MAX_LOAD_FACTOR = 0.6;
+
+	private int[] keys;
+	private Object[] values; // null marks an empty slot
+	private int numElements;
+	private int mask; // Table length is a power of two, so mask replaces modulus
+
+	/**
+	 * Default constructor for IntHash. Starts with a small table that grows as
+	 * keys are inserted
+	 */
+	public IntHash() {
+		this(DEFAULT_SIZE);
+	}
+
+	/**
+	 * Constructor for IntHash sized to hold the given number of keys without
+	 * growing
+	 * 
+	 * @param expected the number of keys expected
+	 */
+	public IntHash(int expected) {
+		int capacity = DEFAULT_SIZE;
+		while (capacity * MAX_LOAD_FACTOR < expected) {
+			capacity *= 2;
+		}
+		keys = new int[capacity];
+		values = new Object[capacity];
+		mask = capacity - 1;
+		numElements = 0;
+	}
+
+	/** Accessors */
+
+	/**
+	 * Returns the home slot for a key. Multiplying by the golden ratio spreads
+	 * consecutive CRNs across the table instead of clustering them
+	 * 
+	 * @param key the key
+	 * @return the index of the first slot to probe
+	 */
+	private int slot(int key) {
+		int h = key * 0x9E3779B9;
+		return (h ^ (h >>> 16)) & mask;
+	}
+
+	/**
+	 * Returns the slot holding a key
+	 * 
+	 * @param key the key to look for
+	 * @return the slot index or -1 if the key is not in the table
+	 */
+	private int find(int key) {
+		int i = slot(key);
+		while (values[i] != null) {
+			if (keys[i] == key) {
+				return i;
+			}
+			i = (i + 1) & mask;
+		}
+		return -1;
+	}
+
+	/**
+	 * Searches for the value stored under a key
+	 * 
+	 * @param key the key to search for
+	 * @return the value for key or null if it is not found
+	 */
+	@SuppressWarnings("unchecked")
+	public V search(int key) {
+		int i = find(key);
+		return i == -1 ? null : (V) values[i];
+	}
+
+	/**
+	 * Determines whether a key is in the table
+	 * 
+	 * @param key the key to look for
+	 * @return whether the key is present
+	 */
+	public boolean contains(int key) {
+		return find(key) != -1;
+	}
+
+	/**
+	 * Returns total number of keys in the table
+	 * 
+	 * @return total number of keys
+	 */
+	public int getNumElements() {
+		return numElements;
+	}
+
+	/** Mutators */
+
+	/**
+	 * Inserts a key and its value. Like Hash.search, which returns the first
+	 * match, the first value stored under a key is kept
+	 * 
+	 * @param key the key to insert
+	 * @param value the value to store, ignored if null
+	 * @return whether the key was added (false if it was already present)
+	 */
+	public boolean insert(int key, V value) {
+		if (value == null) {
+			return false;
+		}
+		int i = slot(key);
+		while (values[i] != null) {
+			if (keys[i] == key) {
+				return false;
+			}
+			i = (i + 1) & mask;
+		}
+		keys[i] = key;
+		values[i] = value;
+		numElements++;
+		if (numElements > keys.length * MAX_LOAD_FACTOR) {
+			resize(keys.length * 2);
+		}
+		return true;
+	}
+
+	/**
+	 * Removes a key from the table. Has no effect if the key is not present
+	 * 
+	 * @param key the key to remove
+	 * @return the value that was stored under key or null if it was not found
+	 */
+	@SuppressWarnings("unchecked")
+	public V remove(int key) {
+		int i = find(key);
+		if (i == -1) {
+			return null;
+		}
+		V removed = (V) values[i];
+		values[i] = null;
+		numElements--;
+
+		// Shift later keys in the same run back so no probe sequence is broken
+		int j = i;
+		while (true) {
+			j = (j + 1) & mask;
+			if (values[j] == null) {
+				break;
+			}
+			int home = slot(keys[j]);
+			boolean homeBetween = (i <= j) ? (i < home && home <= j) : (i < home || home <= j);
+			if (!homeBetween) { // Key at j would be unreachable past the gap at i
+				keys[i] = keys[j];
+				values[i] = values[j];
+				values[j] = null;
+				i = j;
+			}
+		}
+		return removed;
+	}
+
+	/**
+	 * Moves every key into a table of a new size
+	 * 
+	 * @param capacity the new table length, a power of two
+	 */
+	private void resize(int capacity) {
+		int[] oldKeys = keys;
+		Object[] oldValues = values;
+		keys = new int[capacity];
+		values = new Object[capacity];
+		mask = capacity - 1;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldValues[i] != null) {
+				int j = slot(oldKeys[i]);
+				while (values[j] != null) {
+					j = (j + 1) & mask;
+				}
+				keys[j] = oldKeys[i];
+				values[j] = oldValues[i];
+			}
+		}
+	}
+}
@@ -0,0 +1,59 @@
+/**
+ * Json.java
+ * CIS 22C, Course Project
+ * Helpers for writing JSON text straight into an Appendable
+ */
+
+import java.io.IOException;
+
+public class Json {
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private Json() {
+	}
+
+	/**
+	 * Writes a String as a quoted JSON string, escaping what JSON requires
+	 *
+	 * @param out where to write
+	 * @param s the String, written as null when null
+	 * @return out
+	 * @throws IOException when out throws it
+	 */
+	public static Appendable string(Appendable out, String s) throws IOException {
+		if (s == null) {
+			return out.append("null");
+		}
+		out.append('"');
+		int start = 0; // First character not written yet
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c >= 0x20 && c != '"' && c != '\\') {
+				continue;
+			}
+			out.append(s, start, i);
+			switch (c) {
+			case '"':
+				out.append("\\\"");
+				break;
+			case '\\':
+				out.append("\\\\");
+				break;
+			case '\n':
+				out.append("\\n");
+				break;
+			case '\r':
+				out.append("\\r");
+				break;
+			case '\t':
+				out.append("\\t");
+				break;
+			default:
+				out.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xf]);
+			}
+			start = i + 1;
+		}
+		return out.append(s, start, s.length()).append('"');
+	}
+}
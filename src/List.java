@@ -6,18 +6,32 @@
  * CIS 22C, Course Project
  */
 
+import java.io.IOException;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+public class List<T extends Comparable<T>> implements Iterable<T>, Writable {
+	private static final int MAX_LEVEL = 32; // Express lanes above the next/prev links
 
-public class List<T extends Comparable<T>> {
 	private class Node { // inner Node class
 		private T data;
 		private Node next;
 		private Node prev;
+		private Node[] skip; // skip[l] is the next node on express lane l, null if on no lane
+		private int[] width; // width[l] is how many positions skip[l] is ahead
 
-		public Node(T data) { // Node constructor
+		public Node(T data, int levels) { // Node constructor
 			this.data = data;
 			this.next = null;
 			this.prev = null;
+			if (levels > 0) { // Most nodes are on no lane and need no arrays
+				this.skip = newNodeArray(levels);
+				this.width = new int[levels];
+			}
 		}
 	}
 
@@ -25,6 +39,15 @@ public class List<T extends Comparable<T>> {
 	private Node first;
 	private Node last;
 	private Node iterator;
+	private int iteratorIndex; // Position of iterator, meaningful only while it is not null
+	private int modCount; // Structural changes so far, lets Cursors detect concurrent modification
+	private int unsortedPairs; // Neighbors out of ascending order, zero when the List is sorted
+
+	// Indexable skip list over the nodes: a sentinel at position 0 starts every
+	// express lane, and lanes skip ahead by known widths so a position or, in a
+	// sorted List, a value is found in O(log n) expected steps
+	private Node head;
+	private int levels; // Express lanes currently in use
 
 	/**** CONSTRUCTOR ****/
 
@@ -38,6 +61,8 @@ public class List<T extends Comparable<T>> {
 		last = null;
 		iterator = null;
 		length = 0;
+		head = new Node(null, MAX_LEVEL);
+		levels = 0;
 	}
 
 	/**
@@ -48,6 +73,7 @@ public class List<T extends Comparable<T>> {
 	 *                the List original
 	 */
 	public List(List<T> original) {
+		this();
 		if (original == null) {
 			return;
 		}
@@ -69,8 +95,8 @@ public class List<T extends Comparable<T>> {
 	/**** ACCESSORS ****/
 
 	/**
-	 * Returns the index from 1 to length where value is located in the List by
-	 * calling the private helper method binarySearch
+	 * Returns the index from 1 to length where value is located in the List. The
+	 * search runs down the express lanes, so it takes O(log n) steps
 	 * 
 	 * @param value the value to search for
 	 * @return the index where value is stored from 1 to length, or -1 to indicate
@@ -86,37 +112,28 @@ public class List<T extends Comparable<T>> {
 			return -1;
 		}
 
-		return binarySearch(1, length, value);
-	}
-
-	/**
-	 * Searches for the specified value in the List by implementing the recursive
-	 * binarySearch algorithm
-	 * 
-	 * @param low   the lowest bounds of the search
-	 * @param high  the highest bounds of the search
-	 * @param value the value to search for
-	 * @return the index at which value is located or -1 to indicate not found
-	 * @postcondition the location of the iterator must remain unchanged
-	 */
-	private int binarySearch(int low, int high, T value) {
-		if (high < low) {
-			return -1;
+		Node node = head;
+		int index = 0;
+		for (int l = levels - 1; l >= 0; l--) { // Stop each lane just before the first node >= value
+			while (node.skip[l] != null && node.skip[l].data.compareTo(value) < 0) {
+				index += node.width[l];
+				node = node.skip[l];
+			}
 		}
-
-		int mid = low + (high - low) / 2;
-		Node temp = first;
-		for (int i = 1; i < mid; i++) { // Move temp iterator to mid node
-			temp = temp.next;
+		node = after(node);
+		index++;
+		while (node != null && node.data.compareTo(value) < 0) { // Finish on the next/prev links
+			node = node.next;
+			index++;
 		}
-
-		if (temp.data.equals(value)) {
-			return mid;
-		} else if (temp.data.compareTo(value) < 0) { // value is in upper half
-			return binarySearch(mid + 1, high, value);
-		} else { // value is in lower half
-			return binarySearch(low, mid - 1, value);
+		while (node != null && node.data.compareTo(value) == 0) { // Equal by order, check equals
+			if (node.data.equals(value)) {
+				return index;
+			}
+			node = node.next;
+			index++;
 		}
+		return -1;
 	}
 
 	/**
@@ -147,7 +164,7 @@ public class List<T extends Comparable<T>> {
 
 	/**
 	 * Returns the index of the iterator from 1 to n. Note that there is no index 0.
-	 * Does not use recursion.
+	 * The index is kept up to date as the List changes, so this is O(1).
 	 * 
 	 * @precondition iterator != null
 	 * @return the index of the iterator
@@ -157,42 +174,18 @@ public class List<T extends Comparable<T>> {
 		if (iterator == null) {
 			throw new NullPointerException("getIndex: Cannot access. Iterator is null.");
 		}
-		int index = 1;
-		Node temp = first;
-		while (temp != iterator && temp.next != null) {
-			temp = temp.next;
-			index++;
-		}
-		return index;
+		return iteratorIndex;
 	}
 
 	/**
-	 * Determines whether a List is sorted by calling its recursive helper method
-	 * isSorted Note: An empty List can be considered to be (trivially) sorted
+	 * Determines whether a List is sorted. Every add and remove updates the count
+	 * of neighbors that are out of order, so this is O(1). Note: An empty List can
+	 * be considered to be (trivially) sorted
 	 * 
 	 * @return whether this List is sorted
 	 */
 	public boolean inSortedOrder() {
-		if (isEmpty()) {
-			return true;
-		}
-		return inSortedOrder(first);
-	}
-
-	/**
-	 * Helper method to inSortedOrder Determines whether a List is sorted in
-	 * ascending order recursively
-	 * 
-	 * @return whether this List is sorted
-	 */
-	private boolean inSortedOrder(Node node) {
-		if (node == last) { // Only one element in list
-			return true;
-		} else if (node.data.compareTo(node.next.data) > 0) {
-			return false;
-		} else {
-			return inSortedOrder(node.next);
-		}
+		return unsortedPairs == 0;
 	}
 
 	/**
@@ -299,8 +292,8 @@ public class List<T extends Comparable<T>> {
 	/**** MUTATORS ****/
 
 	/**
-	 * Places the iterator at first and then iteratively advances it to the
-	 * specified index no recursion
+	 * Places the iterator at the specified index, found through the express lanes
+	 * in O(log n) expected steps
 	 * 
 	 * @param index the index where the iterator should be placed
 	 * @precondition 1 <= index <= length
@@ -310,10 +303,8 @@ public class List<T extends Comparable<T>> {
 		if (index < 1 || index > length) {
 			throw new IndexOutOfBoundsException("advanceToIndex(): Cannot advance iterator. Index out of bounds.");
 		}
-		placeIterator();
-		for (int i = 1; i < index; i++) {
-			advanceIterator();
-		}
+		iterator = nodeAt(index);
+		iteratorIndex = index;
 	}
 
 	/**
@@ -323,16 +314,7 @@ public class List<T extends Comparable<T>> {
 	 * @postcondition a new first Node is created and added to beginning of List
 	 */
 	public void addFirst(T data) {
-
-		if (length == 0) { // Edge case: list is empty
-			first = last = new Node(data);
-		} else { // General case: list is not empty
-			Node N = new Node(data); // Create new Node
-			N.next = first; // Update reference of new Node to previous first Node
-			first.prev = N; // Update previous first Node to point back to new first Node
-			first = N; // Update first pointer to new Node
-		}
-		length++;
+		insertAt(1, data);
 	}
 
 	/**
@@ -342,16 +324,7 @@ public class List<T extends Comparable<T>> {
 	 * @postcondition a new last Node is created and added to end of List
 	 */
 	public void addLast(T data) {
-
-		if (length == 0) { // Edge case: list is empty
-			first = last = new Node(data);
-		} else { // General case: list is not empty
-			Node N = new Node(data); // Create new Node
-			last.next = N; // Update reference of previous last Node to new Node
-			N.prev = last; // Update new node to point back to previous last Node
-			last = N; // Update last pointer to new Node
-		}
-		length++;
+		insertAt(length + 1, data);
 	}
 
 	/**
@@ -364,17 +337,8 @@ public class List<T extends Comparable<T>> {
 	public void removeFirst() throws NoSuchElementException {
 		if (length == 0) { // List is empty; precondition
 			throw new NoSuchElementException("removeFirst: Cannot remove from an empty List");
-		} else if (length == 1) { // List has one node; edge case
-			first = last = iterator = null; // Return List to empty state, where first, last, and iterator are null and
-											// length is 0
-		} else { // List has 1+ node; general case
-			if (iterator == first) {
-				iterator = null;
-			}
-			first.next.prev = null; // Update next node's previous pointer to null
-			first = first.next; // Advance first reference variable to link to the second Node
 		}
-		length--;
+		removeAt(1);
 	}
 
 	/**
@@ -387,16 +351,8 @@ public class List<T extends Comparable<T>> {
 	public void removeLast() throws NoSuchElementException {
 		if (length == 0) { // List is empty; precondition
 			throw new NoSuchElementException("removeLast: Cannot remove from empty List");
-		} else if (length == 1) { // List has one node; edge case
-			first = last = iterator = null;
-		} else { // List has 1+ node; general case
-			if (iterator == last) {
-				iterator = null;
-			}
-			last = last.prev;
-			last.next = null;
 		}
-		length--;
+		removeAt(length);
 	}
 
 	/**
@@ -406,6 +362,7 @@ public class List<T extends Comparable<T>> {
 	 */
 	public void placeIterator() {
 		iterator = first;
+		iteratorIndex = 1;
 	}
 
 	/**
@@ -419,16 +376,8 @@ public class List<T extends Comparable<T>> {
 	public void removeIterator() throws NullPointerException {
 		if (iterator == null) {
 			throw new NullPointerException("removeIterator: Can't remove. Iterator is off the end");
-		} else if (iterator == first) {
-			removeFirst();
-		} else if (iterator == last) {
-			removeLast();
-		} else { // general case
-			iterator.prev.next = iterator.next;
-			iterator.next.prev = iterator.prev;
-			length--;
 		}
-		iterator = null;
+		removeAt(iteratorIndex); // Leaves iterator null
 	}
 
 	/**
@@ -441,16 +390,8 @@ public class List<T extends Comparable<T>> {
 	public void addIterator(T data) throws NullPointerException {
 		if (iterator == null) {
 			throw new NullPointerException("addIterator: Can't add. Iterator is off the end.");
-		} else if (iterator == last) {
-			addLast(data);
-		} else { // general case
-			Node n = new Node(data);
-			n.next = iterator.next;
-			iterator.next = n;
-			n.prev = iterator;
-			n.next.prev = n;
-			length++;
 		}
+		insertAt(iteratorIndex + 1, data);
 	}
 
 	/**
@@ -465,6 +406,7 @@ public class List<T extends Comparable<T>> {
 			throw new NullPointerException("advanceIterator: Can't advance. Iterator is off the end.");
 		} else {
 			iterator = iterator.next;
+			iteratorIndex++;
 		}
 	}
 
@@ -480,6 +422,343 @@ public class List<T extends Comparable<T>> {
 			throw new NullPointerException("reverseIterator: Can't reverse. Iterator is off the end.");
 		} else {
 			iterator = iterator.prev;
+			iteratorIndex--;
+		}
+	}
+
+	/**** POSITIONAL ACCESS ****/
+
+	/**
+	 * Creates an array of nodes (generic arrays cannot be created directly, so
+	 * the array is made with the raw type and cast)
+	 * 
+	 * @param size the length of the array
+	 * @return an array of null nodes
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private Node[] newNodeArray(int size) {
+		return (Node[]) new List.Node[size];
+	}
+
+	/**
+	 * Returns the node after another one, treating head as the node before first
+	 * 
+	 * @param node a node of this List or head
+	 * @return the following node, or null past the end
+	 */
+	private Node after(Node node) {
+		return (node == head) ? first : node.next;
+	}
+
+	/**
+	 * Finds the node at a position by running down the express lanes
+	 * 
+	 * @param index the position, 0 (head) to length
+	 * @return the node at index
+	 */
+	private Node nodeAt(int index) {
+		Node node = head;
+		int pos = 0;
+		for (int l = levels - 1; l >= 0; l--) {
+			while (node.skip[l] != null && pos + node.width[l] <= index) {
+				pos += node.width[l];
+				node = node.skip[l];
+			}
+		}
+		while (pos < index) { // Lanes leave only a few next links to follow
+			node = after(node);
+			pos++;
+		}
+		return node;
+	}
+
+	/**
+	 * Finds, on every lane, the last node strictly before a position
+	 * 
+	 * @param index the position
+	 * @param update filled with the last node before index on each lane
+	 * @param updatePos filled with the position of each of those nodes
+	 */
+	private void findBefore(int index, Node[] update, int[] updatePos) {
+		Node node = head;
+		int pos = 0;
+		for (int l = levels - 1; l >= 0; l--) {
+			while (node.skip[l] != null && pos + node.width[l] < index) {
+				pos += node.width[l];
+				node = node.skip[l];
+			}
+			update[l] = node;
+			updatePos[l] = pos;
+		}
+	}
+
+	/**
+	 * Returns 1 if two neighbors are out of ascending order, 0 otherwise
+	 * 
+	 * @param a the earlier node, may be null
+	 * @param b the later node, may be null
+	 * @return whether the pair counts toward unsortedPairs
+	 */
+	private int outOfOrder(Node a, Node b) {
+		return (a != null && b != null && a.data.compareTo(b.data) > 0) ? 1 : 0;
+	}
+
+	/**
+	 * Inserts a new node so that it ends up at a given position, linking it into
+	 * a random number of express lanes (each one with probability 1/2)
+	 * 
+	 * @param index the position of the new node, 1 to length + 1
+	 * @param data the data to insert
+	 */
+	private void insertAt(int index, T data) {
+		int nodeLevels = Math.min(Integer.numberOfTrailingZeros(ThreadLocalRandom.current().nextInt()), MAX_LEVEL);
+		Node n = new Node(data, nodeLevels);
+		while (levels < nodeLevels) { // Open new lanes from head
+			head.skip[levels] = null;
+			levels++;
+		}
+
+		Node[] update = newNodeArray(levels);
+		int[] updatePos = new int[levels];
+		findBefore(index, update, updatePos);
+		for (int l = 0; l < levels; l++) {
+			Node u = update[l];
+			if (l < nodeLevels) { // Split u's lane at the new node
+				if (u.skip[l] != null) {
+					n.skip[l] = u.skip[l];
+					n.width[l] = updatePos[l] + u.width[l] + 1 - index;
+				}
+				u.skip[l] = n;
+				u.width[l] = index - updatePos[l];
+			} else if (u.skip[l] != null) { // Lane jumps over the new node
+				u.width[l]++;
+			}
+		}
+
+		// Link into next/prev after the node at index - 1
+		Node before = (levels == 0) ? head : update[0];
+		int pos = (levels == 0) ? 0 : updatePos[0];
+		while (pos < index - 1) {
+			before = after(before);
+			pos++;
+		}
+		Node nextNode = after(before);
+		unsortedPairs -= outOfOrder(before == head ? null : before, nextNode);
+		n.prev = (before == head) ? null : before;
+		n.next = nextNode;
+		if (n.prev == null) {
+			first = n;
+		} else {
+			n.prev.next = n;
+		}
+		if (nextNode == null) {
+			last = n;
+		} else {
+			nextNode.prev = n;
+		}
+		unsortedPairs += outOfOrder(n.prev, n) + outOfOrder(n, n.next);
+
+		if (iterator != null && iteratorIndex >= index) {
+			iteratorIndex++;
+		}
+		length++;
+		modCount++;
+	}
+
+	/**
+	 * Removes the node at a position, unlinking it from every lane it is on
+	 * 
+	 * @param index the position of the node to remove, 1 to length
+	 */
+	private void removeAt(int index) {
+		Node[] update = newNodeArray(levels);
+		int[] updatePos = new int[levels];
+		findBefore(index, update, updatePos);
+		Node n = (levels == 0) ? nodeAt(index) : nodeAt(index, update[0], updatePos[0]);
+		for (int l = 0; l < levels; l++) {
+			Node u = update[l];
+			if (u.skip[l] == n) {
+				if (n.skip[l] != null) {
+					u.width[l] += n.width[l] - 1;
+				}
+				u.skip[l] = n.skip[l];
+			} else if (u.skip[l] != null) {
+				u.width[l]--;
+			}
+		}
+		while (levels > 0 && head.skip[levels - 1] == null) { // Close lanes left empty
+			levels--;
+		}
+
+		unsortedPairs -= outOfOrder(n.prev, n) + outOfOrder(n, n.next);
+		unsortedPairs += outOfOrder(n.prev, n.next);
+		if (n.prev == null) {
+			first = n.next;
+		} else {
+			n.prev.next = n.next;
+		}
+		if (n.next == null) {
+			last = n.prev;
+		} else {
+			n.next.prev = n.prev;
+		}
+
+		if (iterator != null) {
+			if (iteratorIndex == index) {
+				iterator = null;
+			} else if (iteratorIndex > index) {
+				iteratorIndex--;
+			}
+		}
+		length--;
+		modCount++;
+	}
+
+	/**
+	 * Walks next links from a known node to the node at a position
+	 * 
+	 * @param index the position to reach
+	 * @param node a node at or before index
+	 * @param pos the position of node
+	 * @return the node at index
+	 */
+	private Node nodeAt(int index, Node node, int pos) {
+		while (pos < index) {
+			node = after(node);
+			pos++;
+		}
+		return node;
+	}
+
+	/**** CURSORS ****/
+
+	/**
+	 * Returns a new Cursor positioned before the first element. Each Cursor keeps
+	 * its own position, so any number of traversals can run without moving the
+	 * List's built-in iterator
+	 * 
+	 * @return a Cursor over the List from first to last
+	 */
+	@Override
+	public Iterator<T> iterator() {
+		return new Cursor();
+	}
+
+	/**
+	 * Returns a Spliterator that can split the List into halves for parallel
+	 * streams
+	 * 
+	 * @return a Spliterator over the List from first to last
+	 */
+	@Override
+	public Spliterator<T> spliterator() {
+		return new ListSpliterator(first, 1, length, modCount);
+	}
+
+	/**
+	 * Traversal state held outside the List. Fails fast if the List is changed
+	 * other than through this Cursor's remove method
+	 */
+	private class Cursor implements Iterator<T> {
+		private Node next = first;
+		private Node lastReturned = null;
+		private int nextIndex = 1; // Position of next, so remove can find lastReturned's lanes
+		private int expectedModCount = modCount;
+
+		@Override
+		public boolean hasNext() {
+			return next != null;
+		}
+
+		@Override
+		public T next() {
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException("next: List changed during traversal.");
+			} else if (next == null) {
+				throw new NoSuchElementException("next: Cursor is off the end.");
+			}
+			lastReturned = next;
+			next = next.next;
+			nextIndex++;
+			return lastReturned.data;
+		}
+
+		/**
+		 * Removes the element last returned by next
+		 * 
+		 * @precondition next has been called since the last remove
+		 * @throws IllegalStateException when precondition is violated
+		 */
+		@Override
+		public void remove() {
+			if (lastReturned == null) {
+				throw new IllegalStateException("remove: Nothing to remove. Call next first.");
+			} else if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException("remove: List changed during traversal.");
+			}
+			nextIndex--;
+			removeAt(nextIndex);
+			lastReturned = null;
+			expectedModCount = modCount;
+		}
+	}
+
+	/**
+	 * Covers a run of consecutive nodes. Splitting finds the middle of the run
+	 * through the express lanes and hands off the first half, so each element is
+	 * still visited by exactly one Spliterator
+	 */
+	private class ListSpliterator implements Spliterator<T> {
+		private static final int MIN_SPLIT = 64; // Smaller runs are not worth a task of their own
+
+		private Node current;
+		private int index; // Position of current
+		private int remaining;
+		private final int expectedModCount;
+
+		private ListSpliterator(Node start, int index, int count, int expectedModCount) {
+			this.current = start;
+			this.index = index;
+			this.remaining = count;
+			this.expectedModCount = expectedModCount;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super T> action) {
+			if (remaining == 0) {
+				return false;
+			} else if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException("tryAdvance: List changed during traversal.");
+			}
+			T data = current.data;
+			current = current.next;
+			index++;
+			remaining--;
+			action.accept(data);
+			return true;
+		}
+
+		@Override
+		public Spliterator<T> trySplit() {
+			if (remaining < MIN_SPLIT) {
+				return null;
+			}
+			int half = remaining / 2;
+			ListSpliterator prefix = new ListSpliterator(current, index, half, expectedModCount);
+			index += half;
+			current = nodeAt(index);
+			remaining -= half;
+			return prefix;
+		}
+
+		@Override
+		public long estimateSize() {
+			return remaining;
+		}
+
+		@Override
+		public int characteristics() {
+			return ORDERED | SIZED | SUBSIZED;
 		}
 	}
 
@@ -519,12 +798,21 @@ public class List<T extends Comparable<T>> {
 	 */
 	@Override
 	public String toString() {
-		String result = "";
-		Node temp = first;
-		while (temp != null) {
-			result += temp.data + "\n";
-			temp = temp.next;
+		return Writable.toString(this);
+	}
+
+	/**
+	 * Writes each value on its own line, the same text toString returns,
+	 * without building it as one String
+	 *
+	 * @param out where to write
+	 * @throws IOException when out throws it
+	 */
+	@Override
+	public void writeTo(Appendable out) throws IOException {
+		for (T data : this) {
+			Writable.write(data, out);
+			out.append('\n');
 		}
-		return result;
 	}
 }
\ No newline at end of file
@@ -0,0 +1,191 @@
+/**
+ * MeetingTime.java
+ * CIS 22C, Course Project
+ * Parses meeting times such as "Mon, Fri 8:00 AM - 9:45 AM" into one int
+ * holding the days as a bit mask and the start and end of the meeting in
+ * minutes after midnight, so queries by day and time compare ints instead of
+ * parsing text.
+ *
+ * Layout: bits 0-6 days (Mon is bit 0, Sun bit 6), bits 7-17 start minute,
+ * bits 18-28 end minute. NONE, 0, stands for times that could not be parsed.
+ */
+
+public class MeetingTime {
+
+	public static final int NONE = 0; // Packed value of a meeting time that could not be parsed
+	public static final int DAYS = 7; // Days in the mask
+	public static final int MINUTES_PER_DAY = 24 * 60;
+
+	private static final String[] DAY_NAMES = { "Mon", "Tue", "Wed", "Thu", "Fri", "Sat", "Sun" };
+	private static final int MINUTE_BITS = 11; // Enough for MINUTES_PER_DAY
+	private static final int MINUTE_MASK = (1 << MINUTE_BITS) - 1;
+	private static final int START_SHIFT = DAYS;
+	private static final int END_SHIFT = DAYS + MINUTE_BITS;
+
+	private MeetingTime() {
+	}
+
+	/**
+	 * Parses a meeting time: day names separated by commas, then a start and
+	 * an end time separated by a dash
+	 *
+	 * @param text the meeting time, such as "Tue, Thu 1:30 PM - 2:50 PM"
+	 * @return the packed meeting time, or NONE when text is null, not in that
+	 *         form, or ends no later than it starts
+	 */
+	public static int parse(String text) {
+		if (text == null) {
+			return NONE;
+		}
+		int days = 0;
+		int pos = 0;
+		int length = text.length();
+		while (true) { // Day names up to the first digit
+			while (pos < length && (text.charAt(pos) == ' ' || text.charAt(pos) == ',')) {
+				pos++;
+			}
+			if (pos == length) {
+				return NONE;
+			}
+			if (Character.isDigit(text.charAt(pos))) {
+				break;
+			}
+			int day = pos + 3 <= length ? dayOf(text.substring(pos, pos + 3)) : -1;
+			if (day < 0) {
+				return NONE;
+			}
+			days |= 1 << day;
+			pos += 3;
+		}
+		int dash = text.indexOf('-', pos);
+		if (days == 0 || dash == -1) {
+			return NONE;
+		}
+		int start = parseTime(text.substring(pos, dash));
+		int end = parseTime(text.substring(dash + 1));
+		if (start < 0 || end <= start) {
+			return NONE;
+		}
+		return pack(days, start, end);
+	}
+
+	/**
+	 * Packs days and minutes into one int
+	 *
+	 * @param days the bit mask of days, Mon being bit 0
+	 * @param start minutes after midnight the meeting starts
+	 * @param end minutes after midnight the meeting ends, after start
+	 * @return the packed meeting time
+	 */
+	public static int pack(int days, int start, int end) {
+		return (days & ((1 << DAYS) - 1)) | start << START_SHIFT | end << END_SHIFT;
+	}
+
+	/**
+	 * Returns the days of a packed meeting time
+	 *
+	 * @param meeting the packed meeting time
+	 * @return the bit mask of days, Mon being bit 0
+	 */
+	public static int days(int meeting) {
+		return meeting & ((1 << DAYS) - 1);
+	}
+
+	/**
+	 * Returns when a packed meeting time starts
+	 *
+	 * @param meeting the packed meeting time
+	 * @return minutes after midnight
+	 */
+	public static int start(int meeting) {
+		return (meeting >>> START_SHIFT) & MINUTE_MASK;
+	}
+
+	/**
+	 * Returns when a packed meeting time ends
+	 *
+	 * @param meeting the packed meeting time
+	 * @return minutes after midnight
+	 */
+	public static int end(int meeting) {
+		return (meeting >>> END_SHIFT) & MINUTE_MASK;
+	}
+
+	/**
+	 * Returns the bit number of a day name
+	 *
+	 * @param name the first three letters of the day, in any case, such as "Mon"
+	 * @return 0 for Mon through 6 for Sun, or -1 when name is not a day
+	 */
+	public static int dayOf(String name) {
+		for (int day = 0; day < DAYS; day++) {
+			if (DAY_NAMES[day].equalsIgnoreCase(name.trim())) {
+				return day;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the name of a day
+	 *
+	 * @param day 0 for Mon through 6 for Sun
+	 * @return the three letter name, such as "Mon"
+	 * @throws IndexOutOfBoundsException when day is not a day
+	 */
+	public static String dayName(int day) throws IndexOutOfBoundsException {
+		return DAY_NAMES[day];
+	}
+
+	/**
+	 * Parses a time of day such as "9:45 AM" or "12:30 PM"
+	 *
+	 * @param text the time, hours 1 to 12, then minutes, then AM or PM
+	 * @return minutes after midnight, or -1 when text is not a time
+	 */
+	public static int parseTime(String text) {
+		String s = text.trim();
+		int colon = s.indexOf(':');
+		int space = s.indexOf(' ', colon + 1);
+		if (colon < 1 || colon > 2 || space != colon + 3) {
+			return -1;
+		}
+		int hour = digits(s, 0, colon);
+		int minute = digits(s, colon + 1, space);
+		String half = s.substring(space + 1).trim();
+		boolean pm = half.equalsIgnoreCase("PM");
+		if (hour < 1 || hour > 12 || minute < 0 || minute > 59 || (!pm && !half.equalsIgnoreCase("AM"))) {
+			return -1;
+		}
+		return (hour % 12 + (pm ? 12 : 0)) * 60 + minute;
+	}
+
+	/**
+	 * Formats minutes after midnight the way meeting times write them
+	 *
+	 * @param minutes minutes after midnight
+	 * @return the time, such as "9:45 AM"
+	 */
+	public static String formatTime(int minutes) {
+		int hour = minutes / 60 % 12;
+		int minute = minutes % 60;
+		return (hour == 0 ? 12 : hour) + (minute < 10 ? ":0" : ":") + minute + (minutes < 12 * 60 ? " AM" : " PM");
+	}
+
+	/**
+	 * Helper method for parseTime Parses the digits between two positions
+	 *
+	 * @return the number, or -1 when a character is not a digit
+	 */
+	private static int digits(String s, int from, int to) {
+		int n = 0;
+		for (int i = from; i < to; i++) {
+			char c = s.charAt(i);
+			if (c < '0' || c > '9') {
+				return -1;
+			}
+			n = n * 10 + (c - '0');
+		}
+		return n;
+	}
+}
@@ -0,0 +1,313 @@
+/**
+ * RoomIndex.java
+ * CIS 22C, Course Project
+ * Tracks when every location is in use, in the one minute slots of
+ * ScheduleEngine, so the slots booked more than once are exactly the minutes
+ * doubleBookings finds two sections meeting in. Each room keeps how many of
+ * its sections meet in each minute of the week it is used in, the minutes in
+ * use as a bitset, and a running total of the minutes booked more than
+ * once. Adding or removing a section only touches the slots it meets in, so
+ * double bookings, free rooms and utilization are answered from the rooms
+ * alone, without going through the catalog. Rooms are named by the location
+ * text, ignoring leading and trailing spaces. Courses without a location or
+ * a parsed meeting time are not indexed.
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeMap;
+
+public class RoomIndex {
+
+	private static final int WEEKDAYS = 5; // Mon to Fri count toward utilization
+	private static final int DAY_START = 8 * 60; // 8:00 AM, first minute counted toward utilization
+	private static final int DAY_END = 22 * 60; // 10:00 PM, first minute not counted
+
+	private static final long[] TEACHING_WEEK = ScheduleEngine
+			.weekOf(MeetingTime.pack((1 << WEEKDAYS) - 1, DAY_START, DAY_END)); // Slots utilization is out of
+	private static final int TEACHING_SLOTS = bitCount(TEACHING_WEEK);
+
+	private static class Room {
+		// Sections meeting in each slot, by long of the bitset; null where no slot of the long is in use
+		private final int[][] counts = new int[ScheduleEngine.WORDS][];
+		private final long[] inUse = new long[ScheduleEngine.WORDS]; // Slots with a count above 0
+		private final ArrayList<Course> sections = new ArrayList<>();
+		private int doubleBooked; // Slots with a count above 1
+	}
+
+	private final TreeMap<String, Room> rooms = new TreeMap<>(); // By name, so reports come out sorted
+	private int doubleBookedRooms; // Rooms with a slot booked more than once
+
+	/**
+	 * Returns the names of the rooms in the index
+	 *
+	 * @return every location with a section, in alphabetical order
+	 */
+	public Set<String> rooms() {
+		return Collections.unmodifiableSet(rooms.keySet());
+	}
+
+	/**
+	 * Returns the number of rooms with a slot booked more than once
+	 *
+	 * @return the number of double-booked rooms
+	 */
+	public int getDoubleBookedRooms() {
+		return doubleBookedRooms;
+	}
+
+	/**
+	 * Books a course's room for the slots it meets in
+	 *
+	 * @param c the course
+	 * @return false when the course has no location or meeting time and was
+	 *         not added
+	 */
+	public boolean add(Course c) {
+		String name = nameOf(c);
+		if (name == null) {
+			return false;
+		}
+		Room room = rooms.get(name);
+		if (room == null) {
+			room = new Room();
+			rooms.put(name, room);
+		}
+		boolean wasDoubleBooked = room.doubleBooked > 0;
+		long[] week = ScheduleEngine.weekOf(c.getMeeting());
+		for (int w = 0; w < week.length; w++) {
+			for (long bits = week[w]; bits != 0; bits &= bits - 1) {
+				if (room.counts[w] == null) {
+					room.counts[w] = new int[64];
+				}
+				int slot = Long.numberOfTrailingZeros(bits);
+				int count = ++room.counts[w][slot];
+				if (count == 1) {
+					room.inUse[w] |= 1L << slot;
+				} else if (count == 2) {
+					room.doubleBooked++;
+				}
+			}
+		}
+		room.sections.add(c);
+		if (!wasDoubleBooked && room.doubleBooked > 0) {
+			doubleBookedRooms++;
+		}
+		return true;
+	}
+
+	/**
+	 * Books the rooms of many courses
+	 *
+	 * @param courses the courses
+	 */
+	public void addAll(Course[] courses) {
+		for (Course c : courses) {
+			add(c);
+		}
+	}
+
+	/**
+	 * Frees the slots a course booked
+	 *
+	 * @param c the course, compared by identity so that only this section of
+	 *          a CRN listed twice is removed
+	 * @return false when the course was not in the index
+	 */
+	public boolean remove(Course c) {
+		String name = nameOf(c);
+		Room room = (name == null) ? null : rooms.get(name);
+		if (room == null) {
+			return false;
+		}
+		int i = room.sections.size() - 1;
+		while (i >= 0 && room.sections.get(i) != c) {
+			i--;
+		}
+		if (i < 0) {
+			return false;
+		}
+		room.sections.remove(i);
+		boolean wasDoubleBooked = room.doubleBooked > 0;
+		long[] week = ScheduleEngine.weekOf(c.getMeeting());
+		for (int w = 0; w < week.length; w++) {
+			for (long bits = week[w]; bits != 0; bits &= bits - 1) {
+				int slot = Long.numberOfTrailingZeros(bits);
+				int count = --room.counts[w][slot];
+				if (count == 0) {
+					room.inUse[w] &= ~(1L << slot);
+				} else if (count == 1) {
+					room.doubleBooked--;
+				}
+			}
+			if (week[w] != 0 && room.inUse[w] == 0) {
+				room.counts[w] = null;
+			}
+		}
+		if (wasDoubleBooked && room.doubleBooked == 0) {
+			doubleBookedRooms--;
+		}
+		if (room.sections.isEmpty()) {
+			rooms.remove(name);
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the rooms booked more than once at some time of the week
+	 *
+	 * @return their names, in alphabetical order
+	 */
+	public ArrayList<String> doubleBookedRooms() {
+		ArrayList<String> found = new ArrayList<>();
+		if (doubleBookedRooms > 0) {
+			for (String name : rooms.keySet()) {
+				if (rooms.get(name).doubleBooked > 0) {
+					found.add(name);
+				}
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Returns how long a room is booked more than once each week
+	 *
+	 * @param name the room
+	 * @return the minutes double-booked, 0 when the room is not in the index
+	 */
+	public int doubleBookedMinutes(String name) {
+		Room room = rooms.get(name.trim());
+		return (room == null) ? 0 : room.doubleBooked * ScheduleEngine.SLOT_MINUTES;
+	}
+
+	/**
+	 * Returns pairs of sections that meet in a room at the same time. Goes
+	 * through the room's sections a day at a time, by start time, keeping the
+	 * ones still in session, so it stops as soon as limit pairs are found
+	 *
+	 * @param name the room
+	 * @param limit the most pairs to return
+	 * @return the pairs, each listed once, on the first day they clash
+	 */
+	public ArrayList<Course[]> doubleBookings(String name, int limit) {
+		ArrayList<Course[]> pairs = new ArrayList<>();
+		Room room = rooms.get(name.trim());
+		if (room == null || room.doubleBooked == 0) {
+			return pairs;
+		}
+		ArrayList<Course> active = new ArrayList<>();
+		for (int day = 0; day < MeetingTime.DAYS && pairs.size() < limit; day++) {
+			ArrayList<Course> today = new ArrayList<>();
+			for (Course c : room.sections) {
+				if ((MeetingTime.days(c.getMeeting()) & 1 << day) != 0) {
+					today.add(c);
+				}
+			}
+			today.sort((a, b) -> Integer.compare(MeetingTime.start(a.getMeeting()), MeetingTime.start(b.getMeeting())));
+			active.clear();
+			int earlierDays = (1 << day) - 1;
+			for (Course c : today) {
+				int start = MeetingTime.start(c.getMeeting());
+				active.removeIf(a -> MeetingTime.end(a.getMeeting()) <= start);
+				for (Course a : active) {
+					if ((MeetingTime.days(a.getMeeting()) & MeetingTime.days(c.getMeeting()) & earlierDays) != 0) {
+						continue; // Same times every day, so they clashed on that earlier day too
+					}
+					if (pairs.size() == limit) {
+						return pairs;
+					}
+					pairs.add(new Course[] { a, c });
+				}
+				active.add(c);
+			}
+		}
+		return pairs;
+	}
+
+	/**
+	 * Returns the rooms not in use at any time in a span of a day
+	 *
+	 * @param day 0 for Mon through 6 for Sun
+	 * @param from minutes after midnight the span starts
+	 * @param to minutes after midnight the span ends, not included
+	 * @return the names of the free rooms, in alphabetical order
+	 * @throws IllegalArgumentException when day is not a day or the span is empty
+	 */
+	public ArrayList<String> freeRooms(int day, int from, int to) throws IllegalArgumentException {
+		if (day < 0 || day >= MeetingTime.DAYS || from < 0 || to <= from || to > MeetingTime.MINUTES_PER_DAY) {
+			throw new IllegalArgumentException("freeRooms(): No span " + from + "-" + to + " on day " + day);
+		}
+		long[] span = ScheduleEngine.weekOf(MeetingTime.pack(1 << day, from, to));
+		ArrayList<String> free = new ArrayList<>();
+		for (String name : rooms.keySet()) {
+			long[] inUse = rooms.get(name).inUse;
+			boolean isFree = true;
+			for (int w = 0; w < span.length && isFree; w++) {
+				isFree = (inUse[w] & span[w]) == 0;
+			}
+			if (isFree) {
+				free.add(name);
+			}
+		}
+		return free;
+	}
+
+	/**
+	 * Returns the share of the teaching week, Mon to Fri from 8:00 AM to 10:00
+	 * PM, that a room is in use
+	 *
+	 * @param name the room
+	 * @return the percentage, 0 when the room is not in the index
+	 */
+	public double utilization(String name) {
+		Room room = rooms.get(name.trim());
+		return (room == null) ? 0 : 100.0 * teachingSlotsInUse(room) / TEACHING_SLOTS;
+	}
+
+	/**
+	 * Returns the share of the teaching week that rooms are in use, over
+	 * every room in the index
+	 *
+	 * @return the percentage, 0 when there are no rooms
+	 */
+	public double utilization() {
+		long inUse = 0;
+		for (Room room : rooms.values()) {
+			inUse += teachingSlotsInUse(room);
+		}
+		return rooms.isEmpty() ? 0 : 100.0 * inUse / ((long) TEACHING_SLOTS * rooms.size());
+	}
+
+	private static int teachingSlotsInUse(Room room) {
+		int n = 0;
+		for (int w = 0; w < TEACHING_WEEK.length; w++) {
+			n += Long.bitCount(room.inUse[w] & TEACHING_WEEK[w]);
+		}
+		return n;
+	}
+
+	private static int bitCount(long[] week) {
+		int n = 0;
+		for (long w : week) {
+			n += Long.bitCount(w);
+		}
+		return n;
+	}
+
+	/**
+	 * Returns the room a course books
+	 *
+	 * @return the trimmed location, or null when the course has no location
+	 *         or no parsed meeting time
+	 */
+	private static String nameOf(Course c) {
+		String location = c.location();
+		if (location == null || c.getMeeting() == MeetingTime.NONE) {
+			return null;
+		}
+		location = location.trim();
+		return location.isEmpty() ? null : location;
+	}
+}
@@ -0,0 +1,337 @@
+/**
+ * ScheduleEngine.java
+ * CIS 22C, Course Project
+ * Checks sections for time clashes and lists the conflict-free schedules
+ * that take one section of each of several titles. A week is 10080 one
+ * minute slots, one bit each in 158 longs, and a section's times are the
+ * minutes it meets in, so two sections clash exactly when their bits AND to
+ * anything but zero. A section only keeps the longs it has bits in, two or
+ * three for each day it meets. Schedules are found by
+ * backtracking, trying titles with the fewest sections first and dropping a
+ * partial schedule as soon as a section clashes with it. The first levels of
+ * the search are split into tasks for a ForkJoinPool.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+public class ScheduleEngine {
+
+	public static final int SLOT_MINUTES = 1; // Length of one slot, so meetings that do not overlap never share one
+	static final int SLOTS_PER_DAY = MeetingTime.MINUTES_PER_DAY / SLOT_MINUTES;
+	static final int SLOTS = MeetingTime.DAYS * SLOTS_PER_DAY; // Slots per week
+	static final int WORDS = (SLOTS + 63) / 64; // Longs per week
+	private static final long SPLIT_MIN = 1 << 12; // Fewest combinations left worth a task of their own
+
+	/**
+	 * Schedules found for a list of titles
+	 */
+	public static class Result {
+		private final ArrayList<Course[]> schedules; // The first ones found, in search order
+		private final long count; // Every schedule, also those not kept
+
+		private Result(ArrayList<Course[]> schedules, long count) {
+			this.schedules = schedules;
+			this.count = count;
+		}
+
+		/**
+		 * Returns the schedules kept
+		 *
+		 * @return at most the limit asked for, each holding one section per
+		 *         title in the order the titles were given
+		 */
+		public ArrayList<Course[]> getSchedules() {
+			return schedules;
+		}
+
+		/**
+		 * Returns how many conflict-free schedules there are
+		 *
+		 * @return the count, including schedules over the limit
+		 */
+		public long getCount() {
+			return count;
+		}
+	}
+
+	/**
+	 * The slots of a section: the longs of the week it has bits in
+	 */
+	private static class Slots {
+		private final int[] words; // Which longs of the week
+		private final long[] bits; // The bits in each
+
+		private Slots(long[] week) {
+			int n = 0;
+			for (long w : week) {
+				if (w != 0) {
+					n++;
+				}
+			}
+			words = new int[n];
+			bits = new long[n];
+			n = 0;
+			for (int i = 0; i < week.length; i++) {
+				if (week[i] != 0) {
+					words[n] = i;
+					bits[n++] = week[i];
+				}
+			}
+		}
+
+		private boolean clashes(long[] week) {
+			for (int i = 0; i < words.length; i++) {
+				if ((week[words[i]] & bits[i]) != 0) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private boolean clashes(Slots other) {
+			long[] week = new long[WORDS];
+			other.addTo(week);
+			return clashes(week);
+		}
+
+		private void addTo(long[] week) {
+			for (int i = 0; i < words.length; i++) {
+				week[words[i]] |= bits[i];
+			}
+		}
+
+		private void removeFrom(long[] week) { // Only right after addTo, when no bit was set before
+			for (int i = 0; i < words.length; i++) {
+				week[words[i]] &= ~bits[i];
+			}
+		}
+	}
+
+	private ScheduleEngine() {
+	}
+
+	/**
+	 * Returns every pair of courses that meet at the same time. Courses whose
+	 * meeting time could not be parsed clash with nothing
+	 *
+	 * @param courses the courses to check
+	 * @return each clashing pair, in the order the courses were given
+	 */
+	public static ArrayList<Course[]> conflicts(ArrayList<Course> courses) {
+		Slots[] slots = new Slots[courses.size()];
+		for (int i = 0; i < slots.length; i++) {
+			slots[i] = new Slots(weekOf(courses.get(i).getMeeting()));
+		}
+		ArrayList<Course[]> pairs = new ArrayList<>();
+		for (int i = 0; i < slots.length; i++) {
+			for (int j = i + 1; j < slots.length; j++) {
+				if (slots[i].clashes(slots[j])) {
+					pairs.add(new Course[] { courses.get(i), courses.get(j) });
+				}
+			}
+		}
+		return pairs;
+	}
+
+	/**
+	 * Finds the schedules with one section of each title and no clashes, on
+	 * the common pool
+	 *
+	 * @param sections the sections of each title, such as bstTitle.search
+	 *                 returns them
+	 * @param limit the most schedules to keep; all are counted
+	 * @return the schedules, in the same order every run
+	 */
+	public static Result schedules(ArrayList<ArrayList<Course>> sections, int limit) {
+		return schedules(sections, limit, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Finds the schedules with one section of each title and no clashes
+	 *
+	 * @param sections the sections of each title
+	 * @param limit the most schedules to keep; all are counted
+	 * @param pool the pool to search on
+	 * @return the schedules, in the same order every run
+	 */
+	static Result schedules(ArrayList<ArrayList<Course>> sections, int limit, ForkJoinPool pool) {
+		int titles = sections.size();
+		if (titles == 0) {
+			return new Result(new ArrayList<>(), 0);
+		}
+		Integer[] order = new Integer[titles]; // Titles with fewer sections first prune more
+		for (int i = 0; i < titles; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, (a, b) -> Integer.compare(sections.get(a).size(), sections.get(b).size()));
+
+		Course[][] courses = new Course[titles][];
+		Slots[][] slots = new Slots[titles][];
+		int[] titleOf = new int[titles];
+		for (int level = 0; level < titles; level++) {
+			ArrayList<Course> list = sections.get(order[level]);
+			titleOf[level] = order[level];
+			courses[level] = list.toArray(new Course[0]);
+			slots[level] = new Slots[list.size()];
+			for (int i = 0; i < list.size(); i++) {
+				slots[level][i] = new Slots(weekOf(list.get(i).getMeeting()));
+			}
+		}
+		Search search = new Search(courses, slots, titleOf, Math.max(0, limit));
+		return pool.invoke(new SearchTask(search, 0, new long[WORDS], new Course[titles]));
+	}
+
+	/**
+	 * Returns the slots a packed meeting time takes each week, slot s of the
+	 * week being bit s % 64 of long s / 64. A meeting takes the minutes from
+	 * its start up to, not including, its end
+	 *
+	 * @param meeting the meeting time packed by MeetingTime
+	 * @return its slots in WORDS longs, none for MeetingTime.NONE
+	 */
+	static long[] weekOf(int meeting) {
+		long[] week = new long[WORDS];
+		if (meeting != MeetingTime.NONE) {
+			int first = MeetingTime.start(meeting) / SLOT_MINUTES;
+			int last = MeetingTime.end(meeting) / SLOT_MINUTES; // Not included
+			for (int day = 0; day < MeetingTime.DAYS; day++) {
+				if ((MeetingTime.days(meeting) & 1 << day) != 0) {
+					setRange(week, day * SLOTS_PER_DAY + first, day * SLOTS_PER_DAY + last);
+				}
+			}
+		}
+		return week;
+	}
+
+	/**
+	 * Helper method for weekOf Sets the bits of a range of slots, a long at a
+	 * time
+	 *
+	 * @param week the slots of the week
+	 * @param from the first slot
+	 * @param to the slot after the last one
+	 */
+	private static void setRange(long[] week, int from, int to) {
+		while (from < to) {
+			int w = from >>> 6;
+			int end = Math.min(to, (w + 1) << 6); // Slots up to the end of this long
+			long mask = -1L << from;
+			if ((end & 63) != 0) {
+				mask &= ~(-1L << end);
+			}
+			week[w] |= mask;
+			from = end;
+		}
+	}
+
+	/**
+	 * What every task of one search shares, none of it changed while searching
+	 */
+	private static class Search {
+		private final Course[][] courses; // Sections of each level
+		private final Slots[][] slots; // Their slots
+		private final int[] titleOf; // Position of each level's title in the caller's list
+		private final int limit;
+		private final long[] combinations; // Product of the section counts from each level down
+
+		private Search(Course[][] courses, Slots[][] slots, int[] titleOf, int limit) {
+			this.courses = courses;
+			this.slots = slots;
+			this.titleOf = titleOf;
+			this.limit = limit;
+			combinations = new long[courses.length + 1];
+			combinations[courses.length] = 1;
+			for (int level = courses.length - 1; level >= 0; level--) {
+				long below = combinations[level + 1];
+				int n = courses[level].length;
+				combinations[level] = (n > 0 && below > Long.MAX_VALUE / n) ? Long.MAX_VALUE : below * n;
+			}
+		}
+	}
+
+	/**
+	 * Finds every schedule that completes a partial one, from a level down.
+	 * Splits into a task per section while many combinations are left, and
+	 * backtracks in place below that
+	 */
+	private static class SearchTask extends RecursiveTask<Result> {
+		private static final long serialVersionUID = 1L;
+
+		private final Search search;
+		private final int level; // First title without a section yet
+		private final long[] week; // Slots taken by the sections chosen so far
+		private final Course[] chosen; // Section of each level above this one, by level
+
+		private ArrayList<Course[]> found;
+		private long count;
+
+		private SearchTask(Search search, int level, long[] week, Course[] chosen) {
+			this.search = search;
+			this.level = level;
+			this.week = week;
+			this.chosen = chosen;
+		}
+
+		@Override
+		protected Result compute() {
+			found = new ArrayList<>();
+			if (level == search.courses.length - 1 || search.combinations[level] < SPLIT_MIN) {
+				backtrack(level);
+				return new Result(found, count);
+			}
+			ArrayList<SearchTask> tasks = new ArrayList<>();
+			for (int i = 0; i < search.courses[level].length; i++) {
+				Slots s = search.slots[level][i];
+				if (!s.clashes(week)) {
+					long[] next = week.clone();
+					s.addTo(next);
+					Course[] nextChosen = chosen.clone();
+					nextChosen[level] = search.courses[level][i];
+					tasks.add(new SearchTask(search, level + 1, next, nextChosen));
+				}
+			}
+			invokeAll(tasks);
+			for (SearchTask task : tasks) { // Joined in order, so results do not depend on timing
+				Result r = task.join();
+				count += r.count;
+				for (Course[] schedule : r.schedules) {
+					if (found.size() == search.limit) {
+						break;
+					}
+					found.add(schedule);
+				}
+			}
+			return new Result(found, count);
+		}
+
+		/**
+		 * Helper method for compute. Tries every section of a level that fits
+		 * the week so far, then the levels below it
+		 */
+		private void backtrack(int level) {
+			if (level == search.courses.length) {
+				count++;
+				if (found.size() < search.limit) {
+					Course[] schedule = new Course[chosen.length];
+					for (int l = 0; l < chosen.length; l++) {
+						schedule[search.titleOf[l]] = chosen[l];
+					}
+					found.add(schedule);
+				}
+				return;
+			}
+			for (int i = 0; i < search.courses[level].length; i++) {
+				Slots s = search.slots[level][i];
+				if (!s.clashes(week)) {
+					s.addTo(week);
+					chosen[level] = search.courses[level][i];
+					backtrack(level + 1);
+					s.removeFrom(week);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,202 @@
+/**
+ * StringPool.java
+ * CIS 22C, Course Project
+ * Keeps one String per distinct value, so courses that share an instructor,
+ * title, meeting time or location share one String instead of holding a copy
+ * each. Values can be looked up by their UTF-8 bytes, which decodes a value
+ * only the first time it is seen, and every value has a small int id, so the
+ * pool also serves as a dictionary. A pool is not thread-safe.
+ */
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class StringPool {
+
+	private static final int INITIAL_CAPACITY = 256; // Ids before the arrays first grow
+
+	private String[] values; // Value of each id
+	private byte[][] utf8; // UTF-8 bytes of each id, null when the value is ASCII
+	private int[] hashes; // Hash of each id's bytes
+	private int[] slots; // Open-addressed table of id + 1, 0 for an empty slot
+	private int size; // Number of ids handed out
+
+	/**
+	 * Creates an empty pool
+	 */
+	public StringPool() {
+		values = new String[INITIAL_CAPACITY];
+		utf8 = new byte[INITIAL_CAPACITY][];
+		hashes = new int[INITIAL_CAPACITY];
+		slots = new int[INITIAL_CAPACITY * 2];
+	}
+
+	/**
+	 * Returns the number of distinct values in the pool
+	 *
+	 * @return the number of ids handed out
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the pooled String for a range of UTF-8 bytes, decoding it only if
+	 * the pool does not hold it yet
+	 *
+	 * @param buf the bytes, read with absolute gets only
+	 * @param from where the value starts
+	 * @param to where the value ends
+	 * @return the String the pool keeps for those bytes
+	 */
+	public String intern(ByteBuffer buf, int from, int to) {
+		int hash = 0;
+		for (int i = from; i < to; i++) {
+			hash = 31 * hash + (buf.get(i) & 0xff);
+		}
+		int mask = slots.length - 1;
+		for (int slot = HashStrategy.mix(hash) & mask;; slot = (slot + 1) & mask) {
+			int id = slots[slot] - 1;
+			if (id < 0) {
+				byte[] bytes = new byte[to - from];
+				buf.get(from, bytes);
+				return values[add(new String(bytes, StandardCharsets.UTF_8), bytes, hash, slot)];
+			}
+			if (hashes[id] == hash && matches(id, buf, from, to)) {
+				return values[id];
+			}
+		}
+	}
+
+	/**
+	 * Returns the pooled String equal to s, adding s if the pool does not hold
+	 * one yet
+	 *
+	 * @param s the value, or null
+	 * @return the String the pool keeps, or null when s is null
+	 */
+	public String intern(String s) {
+		return s == null ? null : values[idOf(s)];
+	}
+
+	/**
+	 * Returns the id of a value, adding the value the first time it is seen.
+	 * Ids are numbered from 0 in the order values were added
+	 *
+	 * @param s the value
+	 * @return its id
+	 * @throws NullPointerException when s is null
+	 */
+	public int idOf(String s) throws NullPointerException {
+		byte[] bytes = isAscii(s) ? null : s.getBytes(StandardCharsets.UTF_8);
+		int hash = 0;
+		if (bytes == null) {
+			for (int i = 0; i < s.length(); i++) {
+				hash = 31 * hash + s.charAt(i); // Same as the hash of its bytes
+			}
+		} else {
+			for (byte b : bytes) {
+				hash = 31 * hash + (b & 0xff);
+			}
+		}
+		int mask = slots.length - 1;
+		for (int slot = HashStrategy.mix(hash) & mask;; slot = (slot + 1) & mask) {
+			int id = slots[slot] - 1;
+			if (id < 0) {
+				return add(s, bytes, hash, slot);
+			}
+			if (hashes[id] == hash && values[id].equals(s)) {
+				return id;
+			}
+		}
+	}
+
+	/**
+	 * Returns the value of an id
+	 *
+	 * @param id an id returned by idOf
+	 * @return the value
+	 * @throws IndexOutOfBoundsException when no value has the id
+	 */
+	public String valueOf(int id) throws IndexOutOfBoundsException {
+		if (id < 0 || id >= size) {
+			throw new IndexOutOfBoundsException("valueOf(): No value has id " + id);
+		}
+		return values[id];
+	}
+
+	/**
+	 * Helper method for intern and idOf Gives a new value the next id and puts
+	 * it in an empty slot, growing the table when it is half full
+	 */
+	private int add(String value, byte[] bytes, int hash, int slot) {
+		int id = size++;
+		if (id == values.length) {
+			values = Arrays.copyOf(values, id * 2);
+			utf8 = Arrays.copyOf(utf8, id * 2);
+			hashes = Arrays.copyOf(hashes, id * 2);
+		}
+		values[id] = value;
+		utf8[id] = isAscii(value) ? null : bytes;
+		hashes[id] = hash;
+		slots[slot] = id + 1;
+		if (size * 2 > slots.length) {
+			rehash();
+		}
+		return id;
+	}
+
+	/**
+	 * Helper method for add Doubles the table and puts every id back in it
+	 */
+	private void rehash() {
+		slots = new int[slots.length * 2];
+		int mask = slots.length - 1;
+		for (int id = 0; id < size; id++) {
+			int slot = HashStrategy.mix(hashes[id]) & mask;
+			while (slots[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			slots[slot] = id + 1;
+		}
+	}
+
+	/**
+	 * Helper method for intern Compares the value of an id with a range of
+	 * bytes without decoding the bytes
+	 */
+	private boolean matches(int id, ByteBuffer buf, int from, int to) {
+		byte[] bytes = utf8[id];
+		if (bytes == null) { // ASCII, one char per byte
+			String value = values[id];
+			if (value.length() != to - from) {
+				return false;
+			}
+			for (int i = 0; i < value.length(); i++) {
+				if (value.charAt(i) != buf.get(from + i)) {
+					return false;
+				}
+			}
+			return true;
+		}
+		if (bytes.length != to - from) {
+			return false;
+		}
+		for (int i = 0; i < bytes.length; i++) {
+			if (bytes[i] != buf.get(from + i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isAscii(String s) {
+		for (int i = 0; i < s.length(); i++) {
+			if (s.charAt(i) >= 0x80) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
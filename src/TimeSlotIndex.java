@@ -0,0 +1,351 @@
+/**
+ * TimeSlotIndex.java
+ * CIS 22C, Course Project
+ * Finds the courses meeting on a day during a span of time. Each day has an
+ * interval tree: an AVL tree of the distinct (start, end) meeting spans of
+ * that day, ordered by start then end, where every node also knows the
+ * latest end in its subtree. A query skips every subtree that ends too early
+ * or starts too late, so for n spans it takes O(k log n) in the worst case
+ * for k spans found, and O(log n + k) in terms of the spans it visits. The
+ * courses with a span share its node, sorted by CRN. Courses whose meeting
+ * time could not be parsed are not indexed.
+ */
+
+import java.util.ArrayList;
+
+public class TimeSlotIndex {
+	private static class Node {
+		private final int start; // Minutes after midnight
+		private final int end;
+		private final ArrayList<Course> courses = new ArrayList<>(); // Sorted by CRN
+		private Node left;
+		private Node right;
+		private int height; // Edges on the longest path down to a leaf
+		private int maxEnd; // Latest end in the subtree rooted here
+
+		private Node(int start, int end) {
+			this.start = start;
+			this.end = end;
+			maxEnd = end;
+		}
+	}
+
+	private final Node[] roots = new Node[MeetingTime.DAYS]; // Interval tree of each day
+	private int size; // Courses indexed
+
+	/**
+	 * Returns the number of courses in the index
+	 *
+	 * @return the number of courses with a parsed meeting time
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Adds a course under every day it meets
+	 *
+	 * @param c the course
+	 * @return false when the course has no parsed meeting time and was not added
+	 */
+	public boolean add(Course c) {
+		int meeting = c.getMeeting();
+		if (meeting == MeetingTime.NONE) {
+			return false;
+		}
+		for (int day = 0; day < MeetingTime.DAYS; day++) {
+			if ((MeetingTime.days(meeting) & 1 << day) != 0) {
+				roots[day] = insert(roots[day], MeetingTime.start(meeting), MeetingTime.end(meeting), c, true);
+			}
+		}
+		size++;
+		return true;
+	}
+
+	/**
+	 * Adds many courses at once. Each span's courses are sorted once at the
+	 * end instead of being kept sorted one insert at a time
+	 *
+	 * @param courses the courses
+	 */
+	public void addAll(Course[] courses) {
+		for (Course c : courses) {
+			int meeting = c.getMeeting();
+			if (meeting == MeetingTime.NONE) {
+				continue;
+			}
+			for (int day = 0; day < MeetingTime.DAYS; day++) {
+				if ((MeetingTime.days(meeting) & 1 << day) != 0) {
+					roots[day] = insert(roots[day], MeetingTime.start(meeting), MeetingTime.end(meeting), c, false);
+				}
+			}
+			size++;
+		}
+		for (Node root : roots) {
+			sortCourses(root);
+		}
+	}
+
+	/**
+	 * Removes a course from every day it was added under
+	 *
+	 * @param c the course, compared by identity so that only this section of
+	 *          a CRN listed twice is removed
+	 * @return false when the course was not in the index
+	 */
+	public boolean remove(Course c) {
+		int meeting = c.getMeeting();
+		if (meeting == MeetingTime.NONE) {
+			return false;
+		}
+		boolean found = false;
+		for (int day = 0; day < MeetingTime.DAYS; day++) {
+			if ((MeetingTime.days(meeting) & 1 << day) != 0) {
+				Node node = findNode(roots[day], MeetingTime.start(meeting), MeetingTime.end(meeting));
+				if (node != null && removeFrom(node.courses, c)) {
+					found = true;
+					if (node.courses.isEmpty()) {
+						roots[day] = remove(roots[day], node.start, node.end);
+					}
+				}
+			}
+		}
+		if (found) {
+			size--;
+		}
+		return found;
+	}
+
+	/**
+	 * Returns the courses in session on a day at a minute
+	 *
+	 * @param day 0 for Mon through 6 for Sun
+	 * @param minute minutes after midnight
+	 * @return the courses whose meeting starts at or before minute and ends
+	 *         after it, by start time, then end time, then CRN
+	 * @throws IllegalArgumentException when day is not a day
+	 */
+	public ArrayList<Course> meetingAt(int day, int minute) throws IllegalArgumentException {
+		return meetingBetween(day, minute, minute + 1);
+	}
+
+	/**
+	 * Returns the courses in session on a day at any time in a span
+	 *
+	 * @param day 0 for Mon through 6 for Sun
+	 * @param from minutes after midnight the span starts
+	 * @param to minutes after midnight the span ends, not included
+	 * @return the courses whose meeting overlaps the span, by start time, then
+	 *         end time, then CRN
+	 * @throws IllegalArgumentException when day is not a day
+	 */
+	public ArrayList<Course> meetingBetween(int day, int from, int to) throws IllegalArgumentException {
+		if (day < 0 || day >= MeetingTime.DAYS) {
+			throw new IllegalArgumentException("meetingBetween(): No day " + day);
+		}
+		ArrayList<Course> found = new ArrayList<>();
+		collect(roots[day], from, to, found);
+		return found;
+	}
+
+	/**
+	 * Helper method for meetingBetween Adds the courses of every span in a
+	 * subtree that overlaps [from, to), in order
+	 */
+	private void collect(Node node, int from, int to, ArrayList<Course> found) {
+		if (node == null || node.maxEnd <= from) { // Everything below ends before the span
+			return;
+		}
+		collect(node.left, from, to, found);
+		if (node.start < to) {
+			if (node.end > from) {
+				found.addAll(node.courses);
+			}
+			collect(node.right, from, to, found); // Later starts, but only while they start in time
+		}
+	}
+
+	/**
+	 * Helper method for add and addAll Adds a course to the node of its span,
+	 * creating the node if needed
+	 *
+	 * @param sorted whether to keep the node's courses sorted now
+	 * @return the (possibly rotated) root of the subtree
+	 */
+	private Node insert(Node node, int start, int end, Course c, boolean sorted) {
+		if (node == null) {
+			node = new Node(start, end);
+			node.courses.add(c);
+			return node;
+		}
+		int cmp = compare(start, end, node);
+		if (cmp == 0) {
+			if (sorted) {
+				int low = 0;
+				int high = node.courses.size();
+				while (low < high) { // After any equal CRN, like BST
+					int mid = (low + high) >>> 1;
+					if (node.courses.get(mid).compareTo(c) <= 0) {
+						low = mid + 1;
+					} else {
+						high = mid;
+					}
+				}
+				node.courses.add(low, c);
+			} else {
+				node.courses.add(c);
+			}
+			return node;
+		} else if (cmp < 0) {
+			node.left = insert(node.left, start, end, c, sorted);
+		} else {
+			node.right = insert(node.right, start, end, c, sorted);
+		}
+		return rebalance(node);
+	}
+
+	/**
+	 * Helper method for remove Unlinks the node of a span
+	 *
+	 * @return the (possibly rotated) root of the subtree
+	 */
+	private Node remove(Node node, int start, int end) {
+		int cmp = compare(start, end, node);
+		if (cmp < 0) {
+			node.left = remove(node.left, start, end);
+		} else if (cmp > 0) {
+			node.right = remove(node.right, start, end);
+		} else if (node.left == null) {
+			return node.right;
+		} else if (node.right == null) {
+			return node.left;
+		} else {
+			Node min = node.right;
+			while (min.left != null) {
+				min = min.left;
+			}
+			min.right = removeMin(node.right);
+			min.left = node.left;
+			return rebalance(min);
+		}
+		return rebalance(node);
+	}
+
+	/**
+	 * Helper method for remove Unlinks the leftmost node of a subtree
+	 */
+	private Node removeMin(Node node) {
+		if (node.left == null) {
+			return node.right;
+		}
+		node.left = removeMin(node.left);
+		return rebalance(node);
+	}
+
+	private Node findNode(Node node, int start, int end) {
+		while (node != null) {
+			int cmp = compare(start, end, node);
+			if (cmp == 0) {
+				return node;
+			}
+			node = (cmp < 0) ? node.left : node.right;
+		}
+		return null;
+	}
+
+	/**
+	 * Helper method for remove Removes one course from a list sorted by CRN,
+	 * finding it by binary search and then by identity among equal CRNs
+	 */
+	private static boolean removeFrom(ArrayList<Course> courses, Course c) {
+		int low = 0;
+		int high = courses.size();
+		while (low < high) { // First position with a CRN not below c's
+			int mid = (low + high) >>> 1;
+			if (courses.get(mid).compareTo(c) < 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		for (int i = low; i < courses.size() && courses.get(i).compareTo(c) == 0; i++) {
+			if (courses.get(i) == c) {
+				courses.remove(i);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void sortCourses(Node node) {
+		if (node != null) {
+			node.courses.sort(null); // Stable, so equal CRNs keep the order they came in
+			sortCourses(node.left);
+			sortCourses(node.right);
+		}
+	}
+
+	private static int compare(int start, int end, Node node) {
+		int cmp = Integer.compare(start, node.start);
+		return (cmp != 0) ? cmp : Integer.compare(end, node.end);
+	}
+
+	/*** BALANCING ***/
+
+	private static int height(Node node) {
+		return (node == null) ? -1 : node.height;
+	}
+
+	/**
+	 * Recomputes the height and latest end of a node from its children
+	 */
+	private static void update(Node node) {
+		node.height = Math.max(height(node.left), height(node.right)) + 1;
+		node.maxEnd = node.end;
+		if (node.left != null) {
+			node.maxEnd = Math.max(node.maxEnd, node.left.maxEnd);
+		}
+		if (node.right != null) {
+			node.maxEnd = Math.max(node.maxEnd, node.right.maxEnd);
+		}
+	}
+
+	/**
+	 * Restores the AVL property at a node whose subtrees differ in height by at
+	 * most two
+	 */
+	private static Node rebalance(Node node) {
+		update(node);
+		int balance = height(node.left) - height(node.right);
+		if (balance > 1) { // Left heavy
+			if (height(node.left.left) < height(node.left.right)) { // Left-right case
+				node.left = rotateLeft(node.left);
+			}
+			return rotateRight(node);
+		} else if (balance < -1) { // Right heavy
+			if (height(node.right.right) < height(node.right.left)) { // Right-left case
+				node.right = rotateRight(node.right);
+			}
+			return rotateLeft(node);
+		}
+		return node;
+	}
+
+	private static Node rotateRight(Node node) {
+		Node pivot = node.left;
+		node.left = pivot.right;
+		pivot.right = node;
+		update(node);
+		update(pivot);
+		return pivot;
+	}
+
+	private static Node rotateLeft(Node node) {
+		Node pivot = node.right;
+		node.right = pivot.left;
+		pivot.left = node;
+		update(node);
+		update(pivot);
+		return pivot;
+	}
+}
@@ -0,0 +1,713 @@
+/**
+ * UnrolledList.java
+ * CIS 22C, Course Project
+ * List with the same API as List.java, but elements are stored in small
+ * arrays (chunks) linked together instead of one node per element. A scan
+ * reads each chunk as one contiguous block, and a list of n elements needs
+ * about n / MAX_CHUNK objects instead of n.
+ */
+
+import java.io.IOException;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+public class UnrolledList<T extends Comparable<T>> implements Iterable<T>, Writable {
+	private static final int MAX_CHUNK = 16; // Elements per chunk once it is full grown
+	private static final int INITIAL_CHUNK = 2; // Short lists, like most hash buckets, stay small
+
+	private class Chunk { // inner Chunk class
+		private Object[] items;
+		private int count;
+		private Chunk next;
+		private Chunk prev;
+
+		public Chunk(int capacity) { // Chunk constructor
+			items = new Object[capacity];
+			count = 0;
+			next = null;
+			prev = null;
+		}
+
+		@SuppressWarnings("unchecked")
+		private T get(int offset) {
+			return (T) items[offset];
+		}
+
+		/**
+		 * Makes room for at least one more element, up to MAX_CHUNK
+		 */
+		private void grow() {
+			if (count == items.length) {
+				Object[] bigger = new Object[Math.min(items.length * 2, MAX_CHUNK)];
+				System.arraycopy(items, 0, bigger, 0, count);
+				items = bigger;
+			}
+		}
+	}
+
+	private int length;
+	private Chunk first;
+	private Chunk last;
+	private Chunk iterChunk; // Chunk the iterator is in, null when off the end
+	private int iterOffset; // Position of the iterator within iterChunk
+	private int modCount; // Structural changes so far, lets Cursors detect concurrent modification
+
+	/**** CONSTRUCTOR ****/
+
+	/**
+	 * Instantiates a new UnrolledList with default values
+	 *
+	 * @postcondition a new empty UnrolledList is created
+	 */
+	public UnrolledList() {
+		first = null;
+		last = null;
+		iterChunk = null;
+		length = 0;
+	}
+
+	/**
+	 * Instantiates a new UnrolledList by copying another UnrolledList
+	 *
+	 * @param original the UnrolledList to make a copy of
+	 * @postcondition a new UnrolledList object, which is an identical but separate
+	 *                copy of original
+	 */
+	public UnrolledList(UnrolledList<T> original) {
+		this();
+		if (original == null) {
+			return;
+		}
+		for (T data : original) {
+			addLast(data);
+		}
+	}
+
+	/**** ACCESSORS ****/
+
+	/**
+	 * Uses the iterative linear search algorithm to locate a specific element in
+	 * the list
+	 *
+	 * @param element the value to search for
+	 * @return the location of value in the list from 1 to length or -1 to
+	 *         indicate not found
+	 * @postcondition: position of the iterator remains unchanged!
+	 */
+	public int linearSearch(T element) {
+		int index = 1;
+		for (Chunk c = first; c != null; c = c.next) {
+			for (int i = 0; i < c.count; i++) {
+				if (element.equals(c.items[i])) {
+					return index + i;
+				}
+			}
+			index += c.count;
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the index of the iterator from 1 to n. Note that there is no index 0.
+	 *
+	 * @precondition iterator != null
+	 * @return the index of the iterator
+	 * @throws NullPointerException when the precondition is violated
+	 */
+	public int getIndex() throws NullPointerException {
+		if (iterChunk == null) {
+			throw new NullPointerException("getIndex: Cannot access. Iterator is null.");
+		}
+		int index = 1;
+		for (Chunk c = first; c != iterChunk; c = c.next) { // Whole chunks are skipped at once
+			index += c.count;
+		}
+		return index + iterOffset;
+	}
+
+	/**
+	 * Returns the value stored first
+	 *
+	 * @precondition length != 0
+	 * @return the first value
+	 * @throws NoSuchElementException when precondition is violated
+	 */
+	public T getFirst() throws NoSuchElementException {
+		if (length == 0) {
+			throw new NoSuchElementException("getFirst: List is Empty. No data to access!");
+		}
+		return first.get(0);
+	}
+
+	/**
+	 * Returns the value stored last
+	 *
+	 * @precondition length != 0
+	 * @return the last value
+	 * @throws NoSuchElementException when precondition is violated
+	 */
+	public T getLast() throws NoSuchElementException {
+		if (length == 0) {
+			throw new NoSuchElementException("getLast: List is Empty. No data to access!");
+		}
+		return last.get(last.count - 1);
+	}
+
+	/**
+	 * Returns the current length of the list
+	 *
+	 * @return the length of the list from 0 to n
+	 */
+	public int getLength() {
+		return length;
+	}
+
+	/**
+	 * Returns whether the list is currently empty
+	 *
+	 * @return whether the list is empty
+	 */
+	public boolean isEmpty() {
+		return length == 0;
+	}
+
+	/**
+	 * Returns the element that the iterator is pointing to.
+	 *
+	 * @precondition iterator != null
+	 * @return the value pointed to by the iterator
+	 * @throws NullPointerException when precondition is violated
+	 */
+	public T getIterator() throws NullPointerException {
+		if (offEnd()) {
+			throw new NullPointerException("getIterator: Iterator is pointing to null.");
+		}
+		return iterChunk.get(iterOffset);
+	}
+
+	/**
+	 * Returns whether the iterator is off the end.
+	 *
+	 * @return whether the iterator is off the end.
+	 */
+	public boolean offEnd() {
+		return iterChunk == null;
+	}
+
+	/**
+	 * Determines whether two UnrolledLists have equal data in the same order
+	 *
+	 * @param o the UnrolledList to compare to this one
+	 * @return whether the two lists are equal
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public boolean equals(Object o) {
+		if (o == this) {
+			return true;
+		} else if (!(o instanceof UnrolledList)) {
+			return false;
+		} else {
+			UnrolledList<T> L = (UnrolledList<T>) o;
+			if (this.length != L.length) {
+				return false;
+			}
+			Iterator<T> other = L.iterator();
+			for (T data : this) { // Lists are same length
+				if (!data.equals(other.next())) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Returns a hash code consistent with equals, computed from the data in
+	 * order the way java.util.List does
+	 *
+	 * @return the hash code
+	 */
+	@Override
+	public int hashCode() {
+		int hash = 1;
+		for (T data : this) {
+			hash = 31 * hash + Objects.hashCode(data);
+		}
+		return hash;
+	}
+
+	/**** MUTATORS ****/
+
+	/**
+	 * Places the iterator at the element with the given index, skipping whole
+	 * chunks on the way
+	 *
+	 * @param index the index where the iterator should be placed
+	 * @precondition 1 <= index <= length
+	 * @throws IndexOutOfBoundsException when precondition is violated
+	 */
+	public void advanceToIndex(int index) throws IndexOutOfBoundsException {
+		if (index < 1 || index > length) {
+			throw new IndexOutOfBoundsException("advanceToIndex(): Cannot advance iterator. Index out of bounds.");
+		}
+		Chunk c = first;
+		int offset = index - 1;
+		while (offset >= c.count) {
+			offset -= c.count;
+			c = c.next;
+		}
+		iterChunk = c;
+		iterOffset = offset;
+	}
+
+	/**
+	 * Adds an element at the front of the list
+	 *
+	 * @param data the data to insert at the front of the list
+	 * @postcondition data is the new first element
+	 */
+	public void addFirst(T data) {
+		if (first == null) {
+			first = last = new Chunk(INITIAL_CHUNK);
+		}
+		insertAt(first, 0, data);
+	}
+
+	/**
+	 * Adds an element at the end of the list
+	 *
+	 * @param data the data to insert at the end of the list
+	 * @postcondition data is the new last element
+	 */
+	public void addLast(T data) {
+		if (last == null) {
+			first = last = new Chunk(INITIAL_CHUNK);
+		} else if (last.count == MAX_CHUNK) { // Start a fresh chunk rather than splitting a full one
+			Chunk c = new Chunk(MAX_CHUNK);
+			c.prev = last;
+			last.next = c;
+			last = c;
+		}
+		insertAt(last, last.count, data);
+	}
+
+	/**
+	 * Removes the element at the front of the list
+	 *
+	 * @precondition length != 0
+	 * @postcondition the first element is removed
+	 * @throws NoSuchElementException when precondition is violated
+	 */
+	public void removeFirst() throws NoSuchElementException {
+		if (length == 0) {
+			throw new NoSuchElementException("removeFirst: Cannot remove from an empty List");
+		}
+		removeAt(first, 0);
+	}
+
+	/**
+	 * Removes the element at the end of the list
+	 *
+	 * @precondition length != 0
+	 * @postcondition the last element is removed
+	 * @throws NoSuchElementException when precondition is violated
+	 */
+	public void removeLast() throws NoSuchElementException {
+		if (length == 0) {
+			throw new NoSuchElementException("removeLast: Cannot remove from empty List");
+		}
+		removeAt(last, last.count - 1);
+	}
+
+	/**
+	 * Has iterator point to the first element in the list.
+	 *
+	 * @postcondition Iterator now points to first
+	 */
+	public void placeIterator() {
+		iterChunk = first;
+		iterOffset = 0;
+	}
+
+	/**
+	 * Removes the element that the iterator is pointing to.
+	 *
+	 * @precondition Iterator != null
+	 * @postcondition The element the iterator was pointing to is removed from the
+	 *                list; iterator points to NULL
+	 * @throws NullPointerException when precondition is violated
+	 */
+	public void removeIterator() throws NullPointerException {
+		if (iterChunk == null) {
+			throw new NullPointerException("removeIterator: Can't remove. Iterator is off the end");
+		}
+		removeAt(iterChunk, iterOffset);
+		iterChunk = null;
+	}
+
+	/**
+	 * Adds element after the element iterator is pointing to.
+	 *
+	 * @precondition iterator != null
+	 * @postcondition new element is added after the iterator
+	 * @throws NullPointerException when precondition is violated
+	 */
+	public void addIterator(T data) throws NullPointerException {
+		if (iterChunk == null) {
+			throw new NullPointerException("addIterator: Can't add. Iterator is off the end.");
+		}
+		insertAt(iterChunk, iterOffset + 1, data);
+	}
+
+	/**
+	 * Updates iterator to point to next element in the list.
+	 *
+	 * @precondition iterator != null
+	 * @postcondition iterator points to next element in list
+	 * @throws NullPointerException when precondition is violated
+	 */
+	public void advanceIterator() throws NullPointerException {
+		if (iterChunk == null) {
+			throw new NullPointerException("advanceIterator: Can't advance. Iterator is off the end.");
+		}
+		iterOffset++;
+		if (iterOffset == iterChunk.count) {
+			iterChunk = iterChunk.next;
+			iterOffset = 0;
+		}
+	}
+
+	/**
+	 * Updates iterator to point to previous element in the list.
+	 *
+	 * @precondition iterator != null
+	 * @postcondition iterator points to previous element in list
+	 * @throws NullPointerException when precondition is violated
+	 */
+	public void reverseIterator() throws NullPointerException {
+		if (iterChunk == null) {
+			throw new NullPointerException("reverseIterator: Can't reverse. Iterator is off the end.");
+		}
+		iterOffset--;
+		if (iterOffset < 0) {
+			iterChunk = iterChunk.prev;
+			iterOffset = (iterChunk == null) ? 0 : iterChunk.count - 1;
+		}
+	}
+
+	/**
+	 * Inserts an element into a chunk, splitting the chunk in half first if it is
+	 * full
+	 *
+	 * @param c the chunk to insert into
+	 * @param offset the position in c the new element takes, 0 to c.count
+	 * @param data the element to insert
+	 */
+	private void insertAt(Chunk c, int offset, T data) {
+		if (c.count == MAX_CHUNK) {
+			Chunk upper = new Chunk(MAX_CHUNK);
+			int half = MAX_CHUNK / 2;
+			upper.count = c.count - half;
+			System.arraycopy(c.items, half, upper.items, 0, upper.count);
+			for (int i = half; i < c.count; i++) {
+				c.items[i] = null;
+			}
+			c.count = half;
+			upper.prev = c;
+			upper.next = c.next;
+			if (c.next == null) {
+				last = upper;
+			} else {
+				c.next.prev = upper;
+			}
+			c.next = upper;
+			if (iterChunk == c && iterOffset >= half) {
+				iterChunk = upper;
+				iterOffset -= half;
+			}
+			if (offset > half) {
+				c = upper;
+				offset -= half;
+			}
+		}
+		c.grow();
+		System.arraycopy(c.items, offset, c.items, offset + 1, c.count - offset);
+		c.items[offset] = data;
+		c.count++;
+		if (iterChunk == c && iterOffset >= offset) {
+			iterOffset++;
+		}
+		length++;
+		modCount++;
+	}
+
+	/**
+	 * Removes one element from a chunk. Empty chunks are unlinked, and a chunk
+	 * that drops under half full absorbs its successor when both fit in one
+	 *
+	 * @param c the chunk holding the element
+	 * @param offset the position of the element in c
+	 */
+	private void removeAt(Chunk c, int offset) {
+		System.arraycopy(c.items, offset + 1, c.items, offset, c.count - offset - 1);
+		c.count--;
+		c.items[c.count] = null;
+		if (iterChunk == c) {
+			if (iterOffset == offset) {
+				iterChunk = null;
+			} else if (iterOffset > offset) {
+				iterOffset--;
+			}
+		}
+		if (c.count == 0) {
+			unlinkChunk(c);
+		} else if (c.count < MAX_CHUNK / 2 && c.next != null && c.count + c.next.count <= MAX_CHUNK) {
+			Chunk n = c.next;
+			if (c.items.length < c.count + n.count) {
+				Object[] bigger = new Object[MAX_CHUNK];
+				System.arraycopy(c.items, 0, bigger, 0, c.count);
+				c.items = bigger;
+			}
+			System.arraycopy(n.items, 0, c.items, c.count, n.count);
+			if (iterChunk == n) {
+				iterChunk = c;
+				iterOffset += c.count;
+			}
+			c.count += n.count;
+			unlinkChunk(n);
+		}
+		length--;
+		modCount++;
+	}
+
+	/**
+	 * Removes a chunk from the chain of chunks
+	 *
+	 * @param c the chunk to remove
+	 */
+	private void unlinkChunk(Chunk c) {
+		if (c.prev == null) {
+			first = c.next;
+		} else {
+			c.prev.next = c.next;
+		}
+		if (c.next == null) {
+			last = c.prev;
+		} else {
+			c.next.prev = c.prev;
+		}
+	}
+
+	/**** CURSORS ****/
+
+	/**
+	 * Returns a new Cursor positioned before the first element. Each Cursor keeps
+	 * its own position and does not move the built-in iterator
+	 *
+	 * @return a Cursor over the list from first to last
+	 */
+	@Override
+	public Iterator<T> iterator() {
+		return new Cursor();
+	}
+
+	/**
+	 * Returns a Spliterator that can split the list into halves for parallel
+	 * streams, at chunk boundaries
+	 *
+	 * @return a Spliterator over the list from first to last
+	 */
+	@Override
+	public Spliterator<T> spliterator() {
+		return new ChunkSpliterator(first, 0, length, modCount);
+	}
+
+	/**
+	 * Traversal state held outside the list. Fails fast if the list is changed
+	 * other than through this Cursor's remove method
+	 */
+	private class Cursor implements Iterator<T> {
+		private Chunk chunk = first; // Chunk of the element next() returns
+		private int offset = 0;
+		private Chunk lastChunk = null; // Where the element last returned is, for remove
+		private int lastOffset;
+		private int expectedModCount = modCount;
+
+		@Override
+		public boolean hasNext() {
+			return chunk != null;
+		}
+
+		@Override
+		public T next() {
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException("next: List changed during traversal.");
+			} else if (chunk == null) {
+				throw new NoSuchElementException("next: Cursor is off the end.");
+			}
+			lastChunk = chunk;
+			lastOffset = offset;
+			T data = chunk.get(offset);
+			offset++;
+			if (offset == chunk.count) {
+				chunk = chunk.next;
+				offset = 0;
+			}
+			return data;
+		}
+
+		/**
+		 * Removes the element last returned by next
+		 *
+		 * @precondition next has been called since the last remove
+		 * @throws IllegalStateException when precondition is violated
+		 */
+		@Override
+		public void remove() {
+			if (lastChunk == null) {
+				throw new IllegalStateException("remove: Nothing to remove. Call next first.");
+			} else if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException("remove: List changed during traversal.");
+			}
+			Chunk after = lastChunk.next;
+			removeAt(lastChunk, lastOffset);
+			// The next element slid into the removed slot, unless the chunk emptied out
+			if (lastChunk.count == 0) {
+				chunk = after;
+				offset = 0;
+			} else if (lastOffset < lastChunk.count) {
+				chunk = lastChunk;
+				offset = lastOffset;
+			} else {
+				chunk = lastChunk.next;
+				offset = 0;
+			}
+			lastChunk = null;
+			expectedModCount = modCount;
+		}
+	}
+
+	/**
+	 * Covers a run of consecutive elements. Splitting walks the chunks, not the
+	 * elements, to the middle of the run and hands off the chunks before it,
+	 * so each element is still visited by exactly one Spliterator
+	 */
+	private class ChunkSpliterator implements Spliterator<T> {
+		private static final int MIN_SPLIT = 64; // Smaller runs are not worth a task of their own
+
+		private Chunk chunk; // Chunk of the next element
+		private int offset; // Position of the next element within chunk
+		private int remaining;
+		private final int expectedModCount;
+
+		private ChunkSpliterator(Chunk start, int offset, int count, int expectedModCount) {
+			this.chunk = start;
+			this.offset = offset;
+			this.remaining = count;
+			this.expectedModCount = expectedModCount;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super T> action) {
+			if (remaining == 0) {
+				return false;
+			} else if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException("tryAdvance: List changed during traversal.");
+			}
+			T data = chunk.get(offset);
+			offset++;
+			remaining--;
+			if (offset == chunk.count) {
+				chunk = chunk.next;
+				offset = 0;
+			}
+			action.accept(data);
+			return true;
+		}
+
+		/**
+		 * Hands each chunk's elements to action in one pass over its array
+		 */
+		@Override
+		public void forEachRemaining(Consumer<? super T> action) {
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException("forEachRemaining: List changed during traversal.");
+			}
+			while (remaining > 0) {
+				int end = Math.min(chunk.count, offset + remaining);
+				for (int i = offset; i < end; i++) {
+					action.accept(chunk.get(i));
+				}
+				remaining -= end - offset;
+				chunk = chunk.next;
+				offset = 0;
+			}
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException("forEachRemaining: List changed during traversal.");
+			}
+		}
+
+		@Override
+		public Spliterator<T> trySplit() {
+			if (remaining < MIN_SPLIT) {
+				return null;
+			}
+			Chunk end = chunk; // Last chunk of the prefix
+			int taken = chunk.count - offset;
+			while (taken < remaining / 2) {
+				end = end.next;
+				taken += end.count;
+			}
+			if (taken >= remaining) { // The middle is in the last chunk of the run
+				return null;
+			}
+			ChunkSpliterator prefix = new ChunkSpliterator(chunk, offset, taken, expectedModCount);
+			chunk = end.next;
+			offset = 0;
+			remaining -= taken;
+			return prefix;
+		}
+
+		@Override
+		public long estimateSize() {
+			return remaining;
+		}
+
+		@Override
+		public int characteristics() {
+			return ORDERED | SIZED | SUBSIZED;
+		}
+	}
+
+	/**** ADDITIONAL OPERATIONS ****/
+
+	/**
+	 * List with each value on its own line At the end of the List a new line
+	 *
+	 * @return the List as a String for display
+	 */
+	@Override
+	public String toString() {
+		return Writable.toString(this);
+	}
+
+	/**
+	 * Writes each value on its own line, the same text toString returns,
+	 * without building it as one String
+	 *
+	 * @param out where to write
+	 * @throws IOException when out throws it
+	 */
+	@Override
+	public void writeTo(Appendable out) throws IOException {
+		for (T data : this) {
+			Writable.write(data, out);
+			out.append('\n');
+		}
+	}
+}
@@ -0,0 +1,53 @@
+/**
+ * Writable.java
+ * CIS 22C, Course Project
+ * Something that can write its text form straight into an Appendable, such as
+ * a BufferedWriter, so large structures can be saved without first building
+ * one String that holds all of them
+ */
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+public interface Writable {
+
+	/**
+	 * Appends the text form, the same text toString returns
+	 *
+	 * @param out where to write
+	 * @throws IOException when out throws it
+	 */
+	void writeTo(Appendable out) throws IOException;
+
+	/**
+	 * Appends the text form of any value: writeTo for a Writable,
+	 * String.valueOf otherwise
+	 *
+	 * @param value the value to write
+	 * @param out where to write
+	 * @throws IOException when out throws it
+	 */
+	static void write(Object value, Appendable out) throws IOException {
+		if (value instanceof Writable) {
+			((Writable) value).writeTo(out);
+		} else {
+			out.append(String.valueOf(value));
+		}
+	}
+
+	/**
+	 * Returns the text form of a Writable as a String, for toString
+	 *
+	 * @param w the value to write
+	 * @return what w.writeTo appends
+	 */
+	static String toString(Writable w) {
+		StringBuilder s = new StringBuilder();
+		try {
+			w.writeTo(s);
+		} catch (IOException e) { // A StringBuilder never throws
+			throw new UncheckedIOException(e);
+		}
+		return s.toString();
+	}
+}